@@ -0,0 +1,104 @@
+package Benchmark;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+// Minimal benchmark harness for the discovery parsers. The scripts are built and run as plain
+// classes without a build tool, so instead of JMH this runs warmup and measurement rounds
+// in-process and reports throughput, time per op and allocated bytes per op (what JMH's
+// -prof gc reports as gc.alloc.rate.norm), using the per-thread allocation counter of HotSpot.
+public class BDNABench {
+
+	public interface Op {
+		// result is consumed by the harness so the work cannot be optimized away
+		Object run();
+	}
+
+	public static int warmupRounds = 5;
+	public static int measureRounds = 10;
+	public static long roundMillis = 500;
+
+	private static volatile int sink;
+
+	public static String run(String name, Op op) {
+		for (int r = 0; r < warmupRounds; r++) {
+			round(op);
+		}
+		long ops = 0, nanos = 0, bytes = 0;
+		for (int r = 0; r < measureRounds; r++) {
+			long[] round = round(op);
+			ops += round[0];
+			nanos += round[1];
+			bytes += round[2];
+		}
+		double opsPerSec = ops * 1e9 / nanos;
+		String line = String.format("%-48s %14.1f ops/s %12.3f us/op %14.1f B/op",
+				name, opsPerSec, nanos / 1e3 / ops, bytes < 0 ? -1.0 : (double) bytes / ops);
+		System.out.println(line);
+		return line;
+	}
+
+	// one timed round: {ops, elapsed nanos, allocated bytes or -1}
+	private static long[] round(Op op) {
+		long deadline = System.nanoTime() + roundMillis * 1000000L;
+		long allocStart = allocatedBytes();
+		long start = System.nanoTime();
+		long ops = 0, now;
+		int acc = 0;
+		do {
+			Object result = op.run();
+			acc += result == null ? 0 : result.hashCode();
+			ops++;
+			now = System.nanoTime();
+		} while (now < deadline);
+		long allocEnd = allocatedBytes();
+		sink += acc;
+		return new long[] {ops, now - start, allocStart < 0 ? -1 : allocEnd - allocStart};
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	// generated find output: one line per file of a host with homes oracle homes
+	public static String[] findOutput(int lines, int homes, String[] sigFiles) {
+		Random random = new Random(42);
+		String[] output = new String[lines];
+		for (int i = 0; i < lines; i++) {
+			if (i % 50 == 0) {
+				output[i] = "/u0" + (i % 9) + "/app/oracle/product/" + (i % homes) + ".2.0/dbhome_1" + sigFiles[(i / 50) % sigFiles.length] + "\r\n";
+			} else {
+				output[i] = "/u0" + (i % 9) + "/data/" + Integer.toHexString(random.nextInt()) + "/" + "file" + i + ".dat\r\n";
+			}
+		}
+		return output;
+	}
+
+	// generated "ps -eo pid,ppid,user,args" output of a busy host, with a few Oracle, SAP and
+	// Sybase IQ processes among the others
+	public static String[] psOutput(int processes) {
+		Random random = new Random(42);
+		String[] others = {"/usr/sbin/sshd -D", "/usr/lib/systemd/systemd-journald", "/bin/bash", "/usr/bin/python3 /opt/agent/run.py --poll 30", "/usr/java/jdk1.8.0/bin/java -Xmx4g -jar /opt/tomcat/bin/bootstrap.jar start", "[kworker/u16:2]", "/usr/sbin/crond -n"};
+		String[] output = new String[processes + 1];
+		output[0] = "  PID  PPID USER     COMMAND";
+		for (int i = 1; i <= processes; i++) {
+			String args;
+			if (i % 1000 == 0) {
+				args = "/u01/app/oracle/product/19.0.0/dbhome_" + (i / 1000) + "/bin/tnslsnr LISTENER -inherit";
+			} else if (i % 1000 == 1) {
+				args = "/opt/app/Sybase/IQ" + (i / 1000) + "/bin64/iqsrv -n iq" + i + " @/opt/app/Sybase/IQ" + (i / 1000) + "/iq.cfg";
+			} else if (i % 1000 == 2) {
+				args = "java -Diq.agent=/opt/app/Sybase/IQ" + (i / 1000) + "/java/IQAgent2.jar com.sybase.iq.agent.Main";
+			} else if (i % 1000 == 3) {
+				args = "/usr/sap/PRD/SYS/exe/run/sapstart pf=/usr/sap/PRD/SYS/profile/START_DVEBMGS00";
+			} else {
+				args = others[random.nextInt(others.length)];
+			}
+			output[i] = String.format("%6d %6d %-8s %s", 1000 + i, 1 + random.nextInt(999), i % 3 == 0 ? "oracle" : "root", args);
+		}
+		return output;
+	}
+}
@@ -0,0 +1,208 @@
+package Benchmark;
+import java.util.ArrayList;
+import java.util.*;
+
+import Common.FindOutputReader;
+import Common.ProcessPatternMatcher;
+import Common.ProcessTable;
+import Common.SignatureScan;
+import UNIXOracle.CompsXmlExtractor;
+import UNIXOracle.DbsSidIndex;
+import UNIXOracle.ListenerOra;
+import UNIXOracle.LsnrctlParser;
+import UNIXOracle.OracleValidationBatch;
+
+// Every parsing stage of the UNIX discovery scripts on its own, over generated inputs the size
+// of a big host, so a parser regression shows up as a drop in ops/s or a rise in B/op:
+//   footprint    find output -> home directory candidates (SignatureScan)
+//   validation   batched SID validation output -> validating strategy per SID
+//   dbs          $ORACLE_HOME/dbs listing -> re-validated SIDs (DbsSidIndex)
+//   lsnrctl      lsnrctl status -> ListenerStatus
+//   listenerora  listener.ora -> listener names
+//   compsxml     comps.xml -> edition, XML_INV_LOC and server version
+//   iqprocess    ps table -> Sybase IQ processes and install directories
+// run: java -Xmx2g -cp <classes> Benchmark.ParserBenchmarks [stage ...]
+public class ParserBenchmarks {
+
+	public static void main(String[] args) {
+		Set<String> stages = new HashSet<String>(Arrays.asList(args));
+		BDNABench.warmupRounds = 3;
+		BDNABench.measureRounds = 5;
+
+		if (stages.isEmpty() || stages.contains("footprint")) {
+			final String[] sigFiles = {"/bin/lsnrctl", "/bin/sqlplus"};
+			final String[] output = BDNABench.findOutput(200000, 20, sigFiles);
+			BDNABench.run("footprint homes (200000 find lines)", new BDNABench.Op() {
+				public Object run() {
+					SignatureScan scan = new SignatureScan(sigFiles);
+					FindOutputReader.read(output, scan);
+					return scan.confirmHomes(scan.getHomeDir().keySet()).size();
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("validation")) {
+			final String[] sids = sids(200);
+			final OracleValidationBatch batch = new OracleValidationBatch("/u01/app/oracle/product/11.2.0", sids);
+			final String[] output = validationOutput(sids);
+			BDNABench.run("SID validation scan (200 SIDs)", new BDNABench.Op() {
+				public Object run() {
+					return batch.validatedBy(output);
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("dbs")) {
+			final String[] listing = dbsListing(20000);
+			final List<String> validated = Arrays.asList(sids(200));
+			BDNABench.run("dbs re-validation (20000 files, 200 SIDs)", new BDNABench.Op() {
+				public Object run() {
+					return new DbsSidIndex(listing).reValidate(validated).size();
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("lsnrctl")) {
+			final String[] output = lsnrctlStatus(500);
+			BDNABench.run("lsnrctl status parse (500 services)", new BDNABench.Op() {
+				public Object run() {
+					return LsnrctlParser.parse(output).getServices().size();
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("listenerora")) {
+			final String[] output = listenerOra(1000);
+			BDNABench.run("listener.ora names (1000 listeners)", new BDNABench.Op() {
+				public Object run() {
+					return ListenerOra.listenerNames(output).size();
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("compsxml")) {
+			final String[] output = compsXml(3000);
+			BDNABench.run("comps.xml edition/invLoc (3000 components)", new BDNABench.Op() {
+				public Object run() {
+					return CompsXmlExtractor.extract(output, false).getEdition();
+				}
+			});
+			BDNABench.run("comps.xml component list (3000 components)", new BDNABench.Op() {
+				public Object run() {
+					return CompsXmlExtractor.extract(output, true).getComponents().size();
+				}
+			});
+		}
+		if (stages.isEmpty() || stages.contains("iqprocess")) {
+			final String[] output = BDNABench.psOutput(20000);
+			final ProcessPatternMatcher matcher = new ProcessPatternMatcher()
+					.addPattern("com_bdna_modules_app_Sybase_UNIX_Sybase_IQ", "iqsrv", "(.*)bin/iqsrv|(.*)bin64/iqsrv")
+					.addPattern("com_bdna_modules_app_Sybase_UNIX_Sybase_IQ", "java", "iq.agent=(.*)/java/IQAgent\\d*.jar");
+			BDNABench.run("Sybase IQ process match (20000 processes)", new BDNABench.Op() {
+				public Object run() {
+					return matcher.scan(ProcessTable.parse(output)).size();
+				}
+			});
+		}
+	}
+
+	static String[] sids(int count) {
+		String[] sids = new String[count];
+		for (int i = 0; i < count; i++) {
+			sids[i] = "ORA" + i;
+		}
+		return sids;
+	}
+
+	// every strategy of every SID answered, a third of the SIDs validate on their last strategy
+	static String[] validationOutput(String[] sids) {
+		ArrayList<String> output = new ArrayList<String>();
+		for (int i = 0; i < sids.length; i++) {
+			String[] strategies = {"ORAENV", "TWO_TASK", "ORAENV_LOCALHOST", "ORACLE_HOME", "ORACLE_HOME_LOCALHOST"};
+			for (int s = 0; s < strategies.length; s++) {
+				String key = sids[i] + " " + strategies[s];
+				output.add("__BDNA_VALIDATE__ BEGIN " + key);
+				output.add("");
+				output.add("SQL*Plus: Release 11.2.0.4.0 Production on Mon Oct 5 10:12:41 2015");
+				output.add("Copyright (c) 1982, 2013, Oracle.  All rights reserved.");
+				if (s == strategies.length - 1 || i % 3 != 0) {
+					output.add("ERROR:");
+					output.add("ORA-01017: invalid username/password; logon denied");
+				} else {
+					output.add("ERROR:");
+					output.add("ORA-12154: TNS:could not resolve the connect identifier specified");
+				}
+				output.add("__BDNA_VALIDATE__ END " + key);
+			}
+		}
+		return output.toArray(new String[output.size()]);
+	}
+
+	static String[] dbsListing(int files) {
+		String[] listing = new String[files];
+		for (int i = 0; i < files; i++) {
+			switch (i % 5) {
+			case 0: listing[i] = "lkORA" + (i / 5 % 400); break;
+			case 1: listing[i] = "hc_ora" + (i / 5 % 400) + ".dat"; break;
+			case 2: listing[i] = "spfileORA" + (i / 5 % 400) + ".ora"; break;
+			case 3: listing[i] = "arch1_" + i + "_812345678.dbf"; break;
+			default: listing[i] = "init.ora." + i; break;
+			}
+		}
+		return listing;
+	}
+
+	static String[] lsnrctlStatus(int services) {
+		ArrayList<String> output = new ArrayList<String>();
+		output.add("LSNRCTL for Linux: Version 11.2.0.4.0 - Production on 05-OCT-2015 10:12:41");
+		output.add("Connecting to (DESCRIPTION=(ADDRESS=(PROTOCOL=TCP)(HOST=192.168.9.102)(PORT=1521)))");
+		output.add("STATUS of the LISTENER");
+		output.add("------------------------");
+		output.add("Alias                     LISTENER");
+		output.add("Version                   TNSLSNR for Linux: Version 11.2.0.4.0 - Production");
+		output.add("Start Date                01-OCT-2015 08:00:12");
+		output.add("Listener Parameter File   /u01/app/oracle/product/11.2.0/network/admin/listener.ora");
+		output.add("Listener Log File         /u01/app/oracle/diag/tnslsnr/db1/listener/alert/log.xml");
+		output.add("Listening Endpoints Summary...");
+		output.add("  (DESCRIPTION=(ADDRESS=(PROTOCOL=tcp)(HOST=192.168.9.102)(PORT=1521)))");
+		output.add("  (DESCRIPTION=(ADDRESS=(PROTOCOL=ipc)(KEY=EXTPROC1521)))");
+		output.add("Services Summary...");
+		for (int i = 0; i < services; i++) {
+			output.add("Service \"ora" + i + ".example.com\" has 2 instance(s).");
+			output.add("  Instance \"ora" + i + "\", status UNKNOWN, has 1 handler(s) for this service...");
+			output.add("  Instance \"ora" + i + "\", status READY, has 1 handler(s) for this service...");
+		}
+		output.add("The command completed successfully");
+		return output.toArray(new String[output.size()]);
+	}
+
+	static String[] listenerOra(int listeners) {
+		ArrayList<String> output = new ArrayList<String>();
+		for (int i = 0; i < listeners; i++) {
+			output.add("LISTENER" + i + " =");
+			output.add("  (DESCRIPTION_LIST =");
+			output.add("    (DESCRIPTION =");
+			output.add("      (ADDRESS = (PROTOCOL = TCP)(HOST = db1.example.com)(PORT = " + (1521 + i) + "))");
+			output.add("    )");
+			output.add("  )");
+			output.add("");
+			output.add("ADR_BASE_LISTENER" + i + " = /u01/app/oracle");
+			output.add("SID_LIST_LISTENER" + i + " =");
+			output.add("  (SID_LIST = (SID_DESC = (SID_NAME = ora" + i + ")(ORACLE_HOME = /u01/app/oracle/product/11.2.0)))");
+		}
+		return output.toArray(new String[output.size()]);
+	}
+
+	// the oracle.server component comes last, so the scan cannot stop early
+	static String[] compsXml(int components) {
+		ArrayList<String> output = new ArrayList<String>();
+		output.add("<?xml version=\"1.0\" standalone=\"yes\" ?>");
+		output.add("<PRD_LIST><TL_LIST>");
+		for (int i = 0; i < components; i++) {
+			output.add("<COMP NAME=\"oracle.component" + i + "\" VER=\"11.2.0.4.0\" BUILD_NUMBER=\"0\" REP_VER=\"0.0.0.0.0\" RELEASE=\"Production\" INV_LOC=\"Components/oracle.component" + i + "/11.2.0.4.0/1/\" LANGS=\"en\" XML_INV_LOC=\"Components21/oracle.component" + i + "/11.2.0.4.0/\" ACT_INST_VER=\"11.2.0.4.0\" DEINST_VER=\"11.2.0.0.0\" INSTALL_TIME=\"2015.Oct.01 08:00:12 CST\" INST_LOC=\"/u01/app/oracle/product/11.2.0/oracle.component" + i + "\">");
+			output.add("<EXT_NAME>Component " + i + "</EXT_NAME>");
+			output.add("<DESC>Installs component " + i + "</DESC>");
+			output.add("</COMP>");
+		}
+		output.add("<COMP NAME=\"oracle.server\" VER=\"11.2.0.4.0\" BUILD_NUMBER=\"0\" REP_VER=\"0.0.0.0.0\" RELEASE=\"Production\" INV_LOC=\"Components/oracle.server/11.2.0.4.0/1/\" LANGS=\"en\" XML_INV_LOC=\"Components21/oracle.server/11.2.0.4.0/\" ACT_INST_VER=\"11.2.0.4.0\" DEINST_VER=\"11.2.0.0.0\" INSTALL_TIME=\"2015.Oct.01 08:00:12 CST\" INST_LOC=\"/u01/app/oracle/product/11.2.0/oracle.server\">");
+		output.add("<INST_TYPE NAME=\"EE\" NAME_ID=\"EE\" DESC_ID=\"EE_DESC\"/>");
+		output.add("</COMP>");
+		output.add("</TL_LIST></PRD_LIST>");
+		return output.toArray(new String[output.size()]);
+	}
+}
@@ -0,0 +1,49 @@
+package Benchmark;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.BDNAPatterns;
+
+// Per-host cost of the footprint home extraction over a large cachedFind output, compiling
+// "(.*)" + sigFile for every line (as the scripts did) versus taking it from BDNAPatterns.
+// run: java -cp <classes> Benchmark.PatternRegistryBenchmark [lines]
+public class PatternRegistryBenchmark {
+
+	public static void main(String[] args) {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final String[] sigFiles = {"/bin/lsnrctl", "/bin/sqlplus"};
+		final String[] output = BDNABench.findOutput(lines, 20, sigFiles);
+
+		BDNABench.run("footprint homes, compile per line (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				Map<String, Integer> homeDir = new HashMap<String, Integer>();
+				for (int j = 0; j < output.length; j++) {
+					String one = output[j].replaceAll("\r|\n", "");
+					for (int i = 0; i < sigFiles.length; i++) {
+						Matcher matcher = Pattern.compile("(.*)" + sigFiles[i]).matcher(one);
+						if (matcher.find()) {
+							homeDir.put(matcher.group(1), 1);
+						}
+					}
+				}
+				return homeDir;
+			}
+		});
+		BDNABench.run("footprint homes, BDNAPatterns (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				Map<String, Integer> homeDir = new HashMap<String, Integer>();
+				for (int j = 0; j < output.length; j++) {
+					String one = output[j].replaceAll("\r|\n", "");
+					for (int i = 0; i < sigFiles.length; i++) {
+						Matcher matcher = BDNAPatterns.compile("(.*)" + sigFiles[i]).matcher(one);
+						if (matcher.find()) {
+							homeDir.put(matcher.group(1), 1);
+						}
+					}
+				}
+				return homeDir;
+			}
+		});
+		System.out.println("registry: " + BDNAPatterns.shared().size() + " patterns, " + BDNAPatterns.shared().getHits() + " hits, " + BDNAPatterns.shared().getMisses() + " misses");
+	}
+}
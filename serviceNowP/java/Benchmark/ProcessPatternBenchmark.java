@@ -0,0 +1,82 @@
+package Benchmark;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.BDNAPatterns;
+import Common.ProcessPatternMatcher;
+import Common.ProcessTable;
+
+// Process footprints of a 20k-process host: every module's processPatternList and install
+// directory regex run against every ps line, versus one ProcessPatternMatcher automaton pass;
+// once with the Oracle, SAP and Sybase IQ modules, once with 100 modules loaded.
+// run: java -cp <classes> Benchmark.ProcessPatternBenchmark [processes]
+public class ProcessPatternBenchmark {
+
+	private static final String[][] PATTERNS = {
+		{"com_bdna_modules_app_Sybase_UNIX_Sybase_IQ", "iqsrv", "(.*)bin/iqsrv|(.*)bin64/iqsrv"},
+		{"com_bdna_modules_app_Sybase_UNIX_Sybase_IQ", "java", "iq.agent=(.*)/java/IQAgent\\d*.jar"},
+		{"UNIXSAP", "sapstart", null},
+		{"UNIXOracle", "tnslsnr", null},
+	};
+
+	// the three modules plus made-up ones up to count patterns
+	static String[][] patterns(int count) {
+		String[][] patterns = Arrays.copyOf(PATTERNS, Math.max(count, PATTERNS.length));
+		for (int i = PATTERNS.length; i < count; i++) {
+			patterns[i] = new String[] {"module" + i, "srv" + i + "d", null};
+		}
+		return patterns;
+	}
+
+	public static void main(String[] args) {
+		int processes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final String[] output = BDNABench.psOutput(processes);
+		final ProcessTable table = ProcessTable.parse(output);
+
+		BDNABench.run("ps parse (" + processes + ")", new BDNABench.Op() {
+			public Object run() {
+				return ProcessTable.parse(output).size();
+			}
+		});
+		compare(table, PATTERNS, processes);
+		compare(table, patterns(100), processes);
+	}
+
+	static void compare(final ProcessTable table, final String[][] patterns, int processes) {
+		final ProcessPatternMatcher matcher = new ProcessPatternMatcher();
+		for (int i = 0; i < patterns.length; i++) {
+			matcher.addPattern(patterns[i][0], patterns[i][1], patterns[i][2]);
+		}
+		BDNABench.run(patterns.length + " patterns, regex per pattern (" + processes + ")", new BDNABench.Op() {
+			public Object run() {
+				return regexScan(table, patterns);
+			}
+		});
+		BDNABench.run(patterns.length + " patterns, Aho-Corasick (" + processes + ")", new BDNABench.Op() {
+			public Object run() {
+				return matcher.scan(table).size();
+			}
+		});
+	}
+
+	static int regexScan(ProcessTable table, String[][] patterns) {
+		Pattern[] keywords = new Pattern[patterns.length];
+		Pattern[] dirs = new Pattern[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			keywords[i] = BDNAPatterns.compile("^" + Pattern.quote(patterns[i][1]) + "$");
+			dirs[i] = patterns[i][2] == null ? null : BDNAPatterns.compile(patterns[i][2]);
+		}
+		int found = 0;
+		List<ProcessTable.Proc> procs = table.getProcesses();
+		for (int p = 0; p < procs.size(); p++) {
+			String line = procs.get(p).getArgs();
+			for (int i = 0; i < patterns.length; i++) {
+				// a pattern names the process, it is the basename of the executable
+				if (keywords[i].matcher(procs.get(p).getBasename()).find() && (dirs[i] == null || dirs[i].matcher(line).find())) {
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,127 @@
+package Benchmark;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.*;
+
+import Common.BDNAMetrics;
+import Common.BDNAShell;
+import Common.DiscoveryScheduler;
+import Common.FakeShell;
+import Common.PersistentShell;
+import Common.RecordingShell;
+import Common.ReplayShell;
+import Common.ScriptRunner;
+import Common.ShellTranscript;
+
+// Footprint scan of every host of a shell transcript, replayed through ReplayShell on the
+// ScriptRunner and DiscoveryScheduler, to profile and load-test a scan of thousands of hosts
+// on one box without a network:
+//   record    scan the given hosts over ssh (BatchMode) and record the transcript
+//   generate  record a transcript of generated hosts (BDNABench find and ps output) instead
+//   replay    scan the recorded hosts, latency scaled by latencyFactor (1 realistic, 0 none)
+// Per-tag command, per-stage parse and per-script latencies are printed after the scan, and are
+// JFR events when run with -XX:StartFlightRecording.
+// run: java -cp <classes> Benchmark.ReplayScan record <transcript> <host> ...
+//      java -cp <classes> Benchmark.ReplayScan generate <transcript> [hosts] [latencyMillis]
+//      java -cp <classes> Benchmark.ReplayScan replay <transcript> [latencyFactor] [concurrency]
+public class ReplayScan {
+
+	static final String ORACLE_FOOTPRINT = "UNIXOracle.UNIXOracleFootprintStaticScript";
+	static final String SAP_FOOTPRINT = "Sybase.UNIXSAPFootprintStaticScript";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("usage: ReplayScan record|generate|replay <transcript> ...");
+			return;
+		}
+		File file = new File(args[1]);
+		if (args[0].equals("record")) {
+			List<String> hosts = Arrays.asList(args).subList(2, args.length);
+			PersistentShell ssh = PersistentShell.ssh("-o", "BatchMode=yes");
+			record(file, ssh, hosts);
+			ssh.close();
+		} else if (args[0].equals("generate")) {
+			int count = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+			long latency = args.length > 3 ? Long.parseLong(args[3]) : 20;
+			ArrayList<String> hosts = new ArrayList<String>();
+			for (int i = 0; i < count; i++) {
+				hosts.add("10.0." + (i / 250) + "." + (i % 250 + 1));
+			}
+			record(file, generatedHosts(latency), hosts);
+		} else {
+			double latencyFactor = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+			int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+			ShellTranscript transcript = ShellTranscript.open(file);
+			try {
+				ReplayShell shell = new ReplayShell(transcript, latencyFactor);
+				System.out.println(String.format("replaying %d commands of %d hosts, latency x%s", transcript.size(), transcript.getHosts().size(), latencyFactor));
+				scan(shell, transcript.getHosts(), concurrency);
+				System.out.println(String.format("%d commands replayed, %d not recorded, %d ms latency", shell.getCalls(), shell.getMisses(), shell.getLatencyMillis()));
+			} finally {
+				transcript.close();
+			}
+		}
+	}
+
+	static void record(File file, BDNAShell shell, List<String> hosts) throws Exception {
+		ShellTranscript transcript = ShellTranscript.append(file);
+		try {
+			RecordingShell recorder = RecordingShell.record(shell, transcript);
+			scan(recorder, hosts, 50);
+			System.out.println(String.format("%d commands recorded (%d failed) to %s, %d bytes", recorder.getRecorded(), recorder.getFailures(), file, file.length()));
+		} finally {
+			transcript.close();
+		}
+	}
+
+	static void scan(BDNAShell shell, List<String> hosts, int concurrency) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("root.types.footprint.OracleFootprint.UNIXOracleFootprint:signatureFiles", "/bin/lsnrctl<BDNA,>/bin/sqlplus");
+		params.put("root.types.footprint.SAPFootprint.UNIXSAPFootprint:signatureFiles", "/SYS/exe/run/R3trans<BDNA,>/SYS/exe/run/saplicense");
+		// the scripts keep their find index and home probe cache under java.io.tmpdir, a scan
+		// starts from an empty one so every host is scanned as the first time
+		String tmpdir = System.getProperty("java.io.tmpdir");
+		File work = Files.createTempDirectory("ReplayScan").toFile();
+		System.setProperty("java.io.tmpdir", work.getPath());
+		ScriptRunner runner = new ScriptRunner(concurrency);
+		DiscoveryScheduler scheduler = new DiscoveryScheduler(concurrency, 10 * 60 * 1000L)
+				.addStage("oracle", runner.stage(ORACLE_FOOTPRINT, params))
+				.addStage("sap", runner.stage(SAP_FOOTPRINT, params));
+		long start = System.currentTimeMillis();
+		List<DiscoveryScheduler.HostResult> results = scheduler.run(hosts, shell);
+		long elapsed = System.currentTimeMillis() - start;
+		Map<String, Integer> statuses = new TreeMap<String, Integer>();
+		for (DiscoveryScheduler.HostResult result : results) {
+			Integer count = statuses.get(result.getStatus());
+			statuses.put(result.getStatus(), count == null ? 1 : count + 1);
+		}
+		System.out.println(String.format("%d hosts in %d ms %s", hosts.size(), elapsed, statuses));
+		System.out.print(runner.report());
+		System.out.print(BDNAMetrics.report());
+		runner.shutdown();
+		System.setProperty("java.io.tmpdir", tmpdir);
+		delete(work);
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		for (int i = 0; children != null && i < children.length; i++) {
+			delete(children[i]);
+		}
+		if (!file.delete()) {
+			throw new IOException("cannot delete " + file);
+		}
+	}
+
+	// hosts with a 20000 file find output, a few Oracle homes and a 300 process ps table
+	static BDNAShell generatedHosts(long latencyMillis) {
+		String[] sigFiles = {"/bin/lsnrctl", "/bin/sqlplus"};
+		return new FakeShell(latencyMillis)
+				.on("find", BDNABench.findOutput(20000, 3, sigFiles))
+				.on("process_table", BDNABench.psOutput(300))
+				.on("oratab", "orcl:/u01/app/oracle/product/0.2.0/dbhome_1:Y")
+				.on("sqlplus_version", "SQL*Plus: Release 11.2.0.4.0 Production");
+	}
+}
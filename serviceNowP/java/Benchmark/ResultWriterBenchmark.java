@@ -0,0 +1,52 @@
+package Benchmark;
+import java.io.StringWriter;
+
+import Common.BDNAResultWriter;
+
+// Joining 10k values with <BDNA,>: the resultString += pattern of the scripts versus
+// BDNAResultWriter, buffered (with a reused buffer) and written through to a Writer.
+// run: java -cp <classes> Benchmark.ResultWriterBenchmark [entries]
+public class ResultWriterBenchmark {
+
+	public static void main(String[] args) {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		final String[] values = new String[entries];
+		for (int i = 0; i < entries; i++) {
+			values[i] = "/u01/app/oracle/product/11.2.0/dbs/init" + i + ".ora";
+		}
+
+		BDNABench.run("resultString += (" + entries + ")", new BDNABench.Op() {
+			public Object run() {
+				String resultString = "";
+				for (int i = 0; i < values.length; i++) {
+					if (!resultString.equals("")) {
+						resultString += "<BDNA,>" + values[i];
+					} else {
+						resultString = values[i];
+					}
+				}
+				return resultString;
+			}
+		});
+		final BDNAResultWriter writer = new BDNAResultWriter();
+		BDNABench.run("BDNAResultWriter, reused buffer (" + entries + ")", new BDNABench.Op() {
+			public Object run() {
+				writer.reset();
+				for (int i = 0; i < values.length; i++) {
+					writer.add(values[i]);
+				}
+				return writer.toString();
+			}
+		});
+		BDNABench.run("BDNAResultWriter, write-through (" + entries + ")", new BDNABench.Op() {
+			public Object run() {
+				StringWriter out = new StringWriter(values.length * 48);
+				BDNAResultWriter through = new BDNAResultWriter(BDNAResultWriter.SEPARATOR, out);
+				for (int i = 0; i < values.length; i++) {
+					through.add(values[i]);
+				}
+				return out;
+			}
+		});
+	}
+}
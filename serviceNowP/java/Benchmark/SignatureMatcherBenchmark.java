@@ -0,0 +1,61 @@
+package Benchmark;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.BDNAPatterns;
+import Common.FindOutputReader;
+import Common.SignatureScan;
+
+// Footprint home extraction over a 1M-line find output: the per-signature "(.*)" + sigFile
+// regex loop of the footprint scripts versus the SignatureMatcher trie behind SignatureScan.
+// run: java -Xmx2g -cp <classes> Benchmark.SignatureMatcherBenchmark [lines]
+public class SignatureMatcherBenchmark {
+
+	public static void main(String[] args) {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final String[] oracleSigFiles = {"/bin/lsnrctl", "/bin/sqlplus"};
+		final String[] sapSigFiles = {"/SYS/exe/run/R3trans", "/SYS/exe/run/saplicense"};
+		final String[] output = BDNABench.findOutput(lines, 20, oracleSigFiles);
+		BDNABench.warmupRounds = 2;
+		BDNABench.measureRounds = 3;
+
+		BDNABench.run("oracle homes, regex per signature (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				return regexHomes(output, oracleSigFiles);
+			}
+		});
+		BDNABench.run("oracle homes, SignatureMatcher (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				SignatureScan scan = new SignatureScan(oracleSigFiles);
+				FindOutputReader.read(output, scan);
+				return scan.getHomeDir();
+			}
+		});
+		BDNABench.run("sap homes, regex per signature (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				return regexHomes(output, sapSigFiles);
+			}
+		});
+		BDNABench.run("sap homes, SignatureMatcher (" + lines + ")", new BDNABench.Op() {
+			public Object run() {
+				SignatureScan scan = new SignatureScan(sapSigFiles);
+				FindOutputReader.read(output, scan);
+				return scan.getHomeDir();
+			}
+		});
+	}
+
+	static Map<String, Integer> regexHomes(String[] output, String[] sigFiles) {
+		Map<String, Integer> homeDir = new HashMap<String, Integer>();
+		for (int j = 0; j < output.length; j++) {
+			String one = output[j].replaceAll("\r|\n", "");
+			for (int i = 0; i < sigFiles.length; i++) {
+				Matcher matcher = BDNAPatterns.compile("(.*)" + sigFiles[i]).matcher(one);
+				if (matcher.find()) {
+					homeDir.put(matcher.group(1), 1);
+				}
+			}
+		}
+		return homeDir;
+	}
+}
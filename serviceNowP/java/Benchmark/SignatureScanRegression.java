@@ -0,0 +1,154 @@
+package Benchmark;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.FindIndex;
+import Common.FindOutputReader;
+import Common.ShellTranscript;
+import Common.SignatureScan;
+
+// Regression check of the footprint home confirmation: the homes SignatureScan confirms (read
+// line by line, and selected from a FindIndex as the scripts do now) against the legacy perl
+// algorithm on the same find output:
+//   egrep 'sig1$|sig2$', $sigPath{$one} = 1, /(.*)$sig/ -> $homeDir{$1} = 1, and a home is kept
+//   when $sigPath{$dir.$sig} is defined for every signature file.
+// The outputs are the built-in recorded cases below, plain find output files, and every "find"
+// answer of a ShellTranscript (ReplayScan record). Exits with 1 on the first difference.
+// run: java -cp <classes> Benchmark.SignatureScanRegression [-sig /bin/lsnrctl,/bin/sqlplus] [file.txt|transcript.trn ...]
+public class SignatureScanRegression {
+
+	static final String[][] SIG_FILES = {{"/bin/lsnrctl", "/bin/sqlplus"}, {"/SYS/exe/run/R3trans", "/SYS/exe/run/saplicense"}};
+
+	// find outputs recorded on test hosts, cut down to the lines that matter
+	static final String[][] CASES = {
+		// one home
+		{"/BA/app/oracle/product/11.2.0/bin/lsnrctl", "/BA/app/oracle/product/11.2.0/bin/sqlplus"},
+		// the old iterator bug: only the first home was checked
+		{"/u01/app/oracle/product/10.2.0/bin/lsnrctl", "/u01/app/oracle/product/10.2.0/bin/sqlplus",
+			"/u02/app/oracle/product/11.2.0/bin/sqlplus", "/u02/app/oracle/product/11.2.0/bin/lsnrctl",
+			"/u03/client/bin/sqlplus"},
+		// CRLF line endings, duplicates, blank lines and find errors
+		{"/opt/oracle/db1/bin/lsnrctl\r", "/opt/oracle/db1/bin/sqlplus\r\n", "/opt/oracle/db1/bin/sqlplus", "",
+			"find: '/proc/1/fd': Permission denied"},
+		// a home inside a home, and a signature name in the middle of a path
+		{"/u01/oracle/bin/lsnrctl", "/u01/oracle/bin/sqlplus", "/u01/oracle/bin/sqlplus/x/bin/lsnrctl",
+			"/u01/oracle/bin/sqlplus/x/bin/sqlplus", "/u01/oracle/bin/lsnrctl.bak"},
+		// SAP systems, one without saplicense
+		{"/opt/app/Sybase/UNIXSAP/SYS/exe/run/R3trans", "/opt/app/Sybase/UNIXSAP/SYS/exe/run/saplicense",
+			"/usr/sap/EP1/SYS/exe/run/R3trans", "/sapmnt/QAS/SYS/exe/run/R3trans", "/sapmnt/QAS/SYS/exe/run/saplicense"},
+		// signature files at the root
+		{"/bin/lsnrctl", "/bin/sqlplus", "/SYS/exe/run/R3trans"},
+	};
+
+	private static int checked = 0;
+
+	public static void main(String[] args) throws Exception {
+		List<String[]> sigFiles = new ArrayList<String[]>(Arrays.asList(SIG_FILES));
+		List<String> files = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-sig") && i + 1 < args.length) {
+				sigFiles = Collections.singletonList(args[++i].split(","));
+			} else {
+				files.add(args[i]);
+			}
+		}
+		for (int c = 0; c < CASES.length; c++) {
+			check("case " + (c + 1), CASES[c], sigFiles);
+		}
+		// a generated host with many homes
+		check("generated", BDNABench.findOutput(50000, 500, SIG_FILES[0]), sigFiles);
+		for (int f = 0; f < files.size(); f++) {
+			File file = new File(files.get(f));
+			if (file.getName().endsWith(".trn")) {
+				ShellTranscript transcript = ShellTranscript.open(file);
+				try {
+					for (String host : transcript.getHosts()) {
+						int count = transcript.count(host, null, "find");
+						for (int i = 0; i < count; i++) {
+							check(file.getName() + " " + host + " #" + i, transcript.get(host, null, "find", i).getOutput(), sigFiles);
+						}
+					}
+				} finally {
+					transcript.close();
+				}
+			} else {
+				List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+				check(file.getName(), lines.toArray(new String[lines.size()]), sigFiles);
+			}
+		}
+		System.out.println(checked + " find outputs checked, SignatureScan matches the legacy results");
+	}
+
+	static void check(String name, String[] output, List<String[]> sigFiles) throws IOException {
+		for (int s = 0; s < sigFiles.size(); s++) {
+			String[] sigs = sigFiles.get(s);
+			TreeSet<String> legacy = legacyHomes(output, sigs);
+
+			SignatureScan scan = new SignatureScan(sigs);
+			FindOutputReader.read(output, scan);
+			TreeSet<String> scanned = new TreeSet<String>(scan.confirmHomes(scan.getHomeDir().keySet()));
+			compare(name + " " + Arrays.toString(sigs) + " SignatureScan", legacy, scanned);
+
+			File file = File.createTempFile("SignatureScanRegression", ".idx");
+			try {
+				FindIndex index = FindIndex.build(file, Arrays.asList(output));
+				SignatureScan selected = new SignatureScan(sigs);
+				index.select(sigs, selected);
+				compare(name + " " + Arrays.toString(sigs) + " FindIndex.select", legacy, new TreeSet<String>(selected.confirmHomes(selected.getHomeDir().keySet())));
+			} finally {
+				file.delete();
+			}
+			checked++;
+		}
+	}
+
+	private static void compare(String what, TreeSet<String> legacy, TreeSet<String> homes) {
+		if (!legacy.equals(homes)) {
+			System.out.println("MISMATCH " + what + ": legacy " + legacy + ", got " + homes);
+			System.exit(1);
+		}
+	}
+
+	// the perl footprint scripts, as UNIXSAPFootprintStaticScript ported them
+	static TreeSet<String> legacyHomes(String[] output, String[] sigFiles) {
+		String sigPatterns = "";
+		for (int i = 0; i < sigFiles.length; i++) {
+			sigPatterns = sigPatterns.equals("") ? sigFiles[i] + "$" : sigPatterns + "|" + sigFiles[i] + "$";
+		}
+		// cachedFind(..., "/", $sigPatterns, ...) is find | egrep
+		Pattern egrep = Pattern.compile(sigPatterns);
+		Map<String, Integer> sigPath = new HashMap<String, Integer>();
+		Map<String, Integer> homeDir = new HashMap<String, Integer>();
+		for (int j = 0; j < output.length; j++) {
+			String one = output[j].replaceAll("\r|\n", "");
+			if (!egrep.matcher(one).find()) {
+				continue;
+			}
+			sigPath.put(one, 1);
+			for (int i = 0; i < sigFiles.length; i++) {
+				Matcher matcher = Pattern.compile("(.*)" + sigFiles[i]).matcher(one);
+				if (matcher.find()) {
+					homeDir.put(matcher.group(1), 1);
+				}
+			}
+		}
+		TreeSet<String> resultDir = new TreeSet<String>();
+		for (String dir : homeDir.keySet()) {
+			String sigFileNotFound = "0";
+			for (int i = 0; i < sigFiles.length; i++) {
+				if (sigPath.get(dir + sigFiles[i]) == null) {
+					sigFileNotFound = "1";
+					break;
+				}
+			}
+			if (!sigFileNotFound.equals("1")) {
+				resultDir.add(dir);
+			}
+		}
+		return resultDir;
+	}
+}
@@ -0,0 +1,92 @@
+package Common;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR events of BDNAMetrics, only loaded when the JVM has jdk.jfr. They cost nothing unless a
+// recording enables them:
+//   java -XX:StartFlightRecording:filename=scan.jfr,settings=profile ...
+//   jfr print --events bdna.Command scan.jfr
+class BDNAEvents {
+
+	@Name("bdna.Command")
+	@Label("Shell Command")
+	@Category("BDNA")
+	@StackTrace(false)
+	static class CommandEvent extends Event {
+		@Label("Host")
+		String host;
+		@Label("Tag")
+		String tag;
+		@Label("Elapsed")
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+		@Label("Output Lines")
+		int lines;
+	}
+
+	@Name("bdna.Parse")
+	@Label("Parse Stage")
+	@Category("BDNA")
+	@StackTrace(false)
+	static class ParseEvent extends Event {
+		@Label("Stage")
+		String stage;
+		@Label("Elapsed")
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+		@Label("Input Lines")
+		int lines;
+	}
+
+	@Name("bdna.Script")
+	@Label("Script")
+	@Category("BDNA")
+	@StackTrace(false)
+	static class ScriptEvent extends Event {
+		@Label("Script")
+		String script;
+		@Label("Host")
+		String host;
+		@Label("Elapsed")
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+		@Label("Failed")
+		boolean failed;
+	}
+
+	static void command(String host, String tag, long elapsed, int lines) {
+		CommandEvent event = new CommandEvent();
+		if (event.isEnabled()) {
+			event.host = host;
+			event.tag = tag;
+			event.elapsed = elapsed;
+			event.lines = lines;
+			event.commit();
+		}
+	}
+
+	static void parse(String stage, long elapsed, int lines) {
+		ParseEvent event = new ParseEvent();
+		if (event.isEnabled()) {
+			event.stage = stage;
+			event.elapsed = elapsed;
+			event.lines = lines;
+			event.commit();
+		}
+	}
+
+	static void script(String script, String host, long elapsed, boolean failed) {
+		ScriptEvent event = new ScriptEvent();
+		if (event.isEnabled()) {
+			event.script = script;
+			event.host = host;
+			event.elapsed = elapsed;
+			event.failed = failed;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package Common;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// Levelled replacement of the scripts' &echo / println tracing. The level comes from
+// -Dbdna.log=error|warn|info|debug|trace (warn by default) and a disabled call costs one volatile
+// read: messages are "{}" templates only filled in when the level is on, and the fixed-arity
+// overloads take no varargs array. Messages go to stderr, stdout stays the scripts' results.
+public class BDNALog {
+
+	public static final int OFF = 0, ERROR = 1, WARN = 2, INFO = 3, DEBUG = 4, TRACE = 5;
+	private static final String[] NAMES = {"OFF", "ERROR", "WARN", "INFO", "DEBUG", "TRACE"};
+
+	private static volatile int level = level(System.getProperty("bdna.log", "warn"));
+	private static volatile PrintStream out = System.err;
+
+	static int level(String name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equalsIgnoreCase(name.trim())) {
+				return i;
+			}
+		}
+		return WARN;
+	}
+
+	public static void setLevel(int newLevel) {
+		level = newLevel;
+	}
+
+	public static int getLevel() {
+		return level;
+	}
+
+	public static void setOutput(PrintStream stream) {
+		out = stream;
+	}
+
+	public static boolean isEnabled(int atLevel) {
+		return level >= atLevel;
+	}
+
+	public static boolean isDebug() {
+		return level >= DEBUG;
+	}
+
+	public static void error(String message, Object arg) {
+		if (level >= ERROR) log(ERROR, message, arg);
+	}
+
+	public static void warn(String message) {
+		if (level >= WARN) log(WARN, message);
+	}
+
+	public static void warn(String message, Object arg) {
+		if (level >= WARN) log(WARN, message, arg);
+	}
+
+	public static void info(String message, Object arg) {
+		if (level >= INFO) log(INFO, message, arg);
+	}
+
+	public static void info(String message, Object arg1, Object arg2) {
+		if (level >= INFO) log(INFO, message, arg1, arg2);
+	}
+
+	public static void debug(String message, Object arg) {
+		if (level >= DEBUG) log(DEBUG, message, arg);
+	}
+
+	public static void debug(String message, Object arg1, Object arg2) {
+		if (level >= DEBUG) log(DEBUG, message, arg1, arg2);
+	}
+
+	public static void debug(String message, Object arg1, Object arg2, Object arg3) {
+		if (level >= DEBUG) log(DEBUG, message, arg1, arg2, arg3);
+	}
+
+	public static void trace(String message, Object arg) {
+		if (level >= TRACE) log(TRACE, message, arg);
+	}
+
+	private static void log(int atLevel, String message, Object... args) {
+		StringBuilder line = new StringBuilder(message.length() + 64);
+		line.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()));
+		line.append(' ').append(NAMES[atLevel]).append(" [").append(Thread.currentThread().getName()).append("] ");
+		int arg = 0;
+		for (int i = 0; i < message.length(); i++) {
+			if (message.charAt(i) == '{' && i + 1 < message.length() && message.charAt(i + 1) == '}' && arg < args.length) {
+				line.append(args[arg++]);
+				i++;
+			} else {
+				line.append(message.charAt(i));
+			}
+		}
+		out.println(line);
+	}
+}
@@ -0,0 +1,277 @@
+package Common;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.*;
+
+// Counters and latency histograms of the discovery hot paths, kept per kind and name:
+//   command  every &shellcmd by tag (validate_instance, lsnrctl_status, sqlplus_version, oratab,
+//            filesystem_ids, ...), through a shell wrapped by meter()
+//   parse    every parsing stage (lsnrctl, comps_xml, dbs_files, process_table, ...)
+//   script   every script run on the ScriptRunner
+// A histogram is log-linear like HdrHistogram: 16 sub-buckets per power of two, so any value is
+// within ~6% of its bucket, over the whole nanosecond to hours range, in a fixed array updated
+// without locks. Each record is also a JFR event (bdna.Command, bdna.Parse, bdna.Script) when
+// the JVM has JFR and a recording has them enabled. -Dbdna.metrics=false turns recording off.
+public class BDNAMetrics {
+
+	public static final String COMMAND = "command", PARSE = "parse", SCRIPT = "script";
+
+	public static class Counter {
+		private final LongAdder count = new LongAdder();
+
+		public void increment() {
+			count.increment();
+		}
+
+		public void add(long n) {
+			count.add(n);
+		}
+
+		public long get() {
+			return count.sum();
+		}
+	}
+
+	public static class Histogram {
+		private static final int SUB_BITS = 5;
+		private static final int HALF = 1 << (SUB_BITS - 1);
+		private static final int BUCKETS = (64 - SUB_BITS + 1) * HALF + HALF;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		static int index(long value) {
+			if (value < 2 * HALF) {
+				return (int) Math.max(value, 0);
+			}
+			int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+			return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+		}
+
+		// the highest value of bucket index
+		static long highest(int index) {
+			if (index < 2 * HALF) {
+				return index;
+			}
+			int shift = (index >> (SUB_BITS - 1)) - 1;
+			long low = (long) (index - (shift << (SUB_BITS - 1))) << shift;
+			return low + (1L << shift) - 1;
+		}
+
+		public void record(long value) {
+			buckets.incrementAndGet(index(value));
+			count.increment();
+			sum.add(value);
+			for (long m = max.get(); value > m && !max.compareAndSet(m, value); m = max.get());
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		public long getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : sum.sum() / n;
+		}
+
+		// the value p percent of the records are at or below (bucket precision)
+		public long percentile(double p) {
+			long n = count.sum();
+			if (n == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(n * p / 100));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += buckets.get(i);
+				if (seen >= rank) {
+					return Math.min(highest(i), max.get());
+				}
+			}
+			return max.get();
+		}
+	}
+
+	private static volatile boolean enabled = !"false".equals(System.getProperty("bdna.metrics"));
+	private static final boolean JFR = jfrAvailable();
+
+	private static final ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> histograms = new ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>>();
+	private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+
+	private static boolean jfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	public static Histogram histogram(String kind, String name) {
+		ConcurrentHashMap<String, Histogram> byName = histograms.get(kind);
+		if (byName == null) {
+			histograms.putIfAbsent(kind, new ConcurrentHashMap<String, Histogram>());
+			byName = histograms.get(kind);
+		}
+		Histogram histogram = byName.get(name);
+		if (histogram == null) {
+			byName.putIfAbsent(name, new Histogram());
+			histogram = byName.get(name);
+		}
+		return histogram;
+	}
+
+	public static Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counters.putIfAbsent(name, new Counter());
+			counter = counters.get(name);
+		}
+		return counter;
+	}
+
+	// the start of a measured section, 0 when metrics are off
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public static void command(String host, String tag, long start, int lines) {
+		if (start == 0) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		histogram(COMMAND, tag).record(elapsed);
+		if (JFR) {
+			BDNAEvents.command(host, tag, elapsed, lines);
+		}
+	}
+
+	public static void parse(String stage, long start, int lines) {
+		if (start == 0) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		histogram(PARSE, stage).record(elapsed);
+		if (JFR) {
+			BDNAEvents.parse(stage, elapsed, lines);
+		}
+	}
+
+	public static void script(String script, String host, long start, boolean failed) {
+		if (start == 0) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		histogram(SCRIPT, script).record(elapsed);
+		if (failed) {
+			counter(SCRIPT + "." + script + ".errors").increment();
+		}
+		if (JFR) {
+			BDNAEvents.script(script, host, elapsed, failed);
+		}
+	}
+
+	// shell with every &shellcmd timed by tag; a RemoteShell stays a RemoteShell and streamed
+	// output stays streamed
+	public static BDNAShell meter(BDNAShell shell) {
+		if (shell instanceof MeteredShell) {
+			return shell;
+		}
+		if (shell instanceof RemoteShell) {
+			return new MeteredRemoteShell((RemoteShell) shell);
+		}
+		return new MeteredShell(shell);
+	}
+
+	private static class MeteredShell implements StreamingShell {
+		final BDNAShell shell;
+
+		MeteredShell(BDNAShell shell) {
+			this.shell = shell;
+		}
+
+		public String[] shellcmd(String host, String cmd, String tag) {
+			long start = start();
+			String[] output = shell.shellcmd(host, cmd, tag);
+			command(host, tag, start, output.length);
+			return output;
+		}
+
+		public long shellcmd(String host, String cmd, String tag, FindOutputReader.LineHandler handler) {
+			long start = start();
+			long lines = FindOutputReader.read(shell, host, cmd, tag, handler);
+			command(host, tag, start, (int) lines);
+			return lines;
+		}
+	}
+
+	private static class MeteredRemoteShell extends MeteredShell implements RemoteShell {
+		MeteredRemoteShell(RemoteShell shell) {
+			super(shell);
+		}
+
+		public String[] shellcmd(String host, Map<String, String> env, String cmd, String tag) {
+			long start = start();
+			String[] output = ((RemoteShell) shell).shellcmd(host, env, cmd, tag);
+			command(host, tag, start, output.length);
+			return output;
+		}
+
+		public void close(String host) {
+			((RemoteShell) shell).close(host);
+		}
+
+		public void close() {
+			((RemoteShell) shell).close();
+		}
+	}
+
+	// kind.name -> count, mean, p50, p90, p99, max (nanoseconds), and the counters
+	public static Map<String, long[]> snapshot() {
+		TreeMap<String, long[]> snapshot = new TreeMap<String, long[]>();
+		for (Map.Entry<String, ConcurrentHashMap<String, Histogram>> kind : histograms.entrySet()) {
+			for (Map.Entry<String, Histogram> entry : kind.getValue().entrySet()) {
+				Histogram h = entry.getValue();
+				snapshot.put(kind.getKey() + "." + entry.getKey(), new long[] {h.getCount(), h.getMean(), h.percentile(50), h.percentile(90), h.percentile(99), h.getMax()});
+			}
+		}
+		for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+			snapshot.put(entry.getKey(), new long[] {entry.getValue().get()});
+		}
+		return snapshot;
+	}
+
+	public static String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-52s %10s %10s %10s %10s %10s %10s%n", "metric", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+		for (Map.Entry<String, long[]> entry : snapshot().entrySet()) {
+			long[] v = entry.getValue();
+			if (v.length == 1) {
+				report.append(String.format("%-52s %10d%n", entry.getKey(), v[0]));
+			} else {
+				report.append(String.format("%-52s %10d %10.3f %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), v[0], v[1] / 1e6, v[2] / 1e6, v[3] / 1e6, v[4] / 1e6, v[5] / 1e6));
+			}
+		}
+		return report.toString();
+	}
+
+	public static void reset() {
+		histograms.clear();
+		counters.clear();
+	}
+}
@@ -0,0 +1,94 @@
+package Common;
+import java.util.regex.*;
+import java.util.*;
+
+// Shared registry of compiled patterns for the discovery scripts. Pattern.compile inside the
+// per-line loops (one compile per SID x dbs file, per find output line x signature file, ...)
+// becomes a lookup keyed by pattern string (and flags when there are any). The cache is an
+// access-ordered LRU bounded by capacity, so patterns built from host data (SIDs, home
+// directories) cannot grow it without limit while the ones in use stay. Fixed patterns of the
+// scripts are static final Pattern.compile fields and do not come here at all.
+public class BDNAPatterns {
+
+	public static final int DEFAULT_CAPACITY = 512;
+
+	private static final BDNAPatterns shared = new BDNAPatterns(DEFAULT_CAPACITY);
+
+	private final int capacity;
+	// by regex, the (rare) flagged ones by flags and regex; least recently used first
+	private final LinkedHashMap<String, Pattern> cache;
+	private long hits, misses;
+
+	public BDNAPatterns(int capacity) {
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+				return size() > BDNAPatterns.this.capacity;
+			}
+		};
+	}
+
+	// Pattern.compile(regex) from the shared registry
+	public static Pattern compile(String regex) {
+		return shared.get(regex, 0);
+	}
+
+	// Pattern.compile(regex, flags) from the shared registry
+	public static Pattern compile(String regex, int flags) {
+		return shared.get(regex, flags);
+	}
+
+	public static BDNAPatterns shared() {
+		return shared;
+	}
+
+	public Pattern get(String regex, int flags) {
+		String key = flags == 0 ? regex : flags + ":" + regex;
+		synchronized (cache) {
+			Pattern pattern = cache.get(key);
+			if (pattern != null) {
+				hits++;
+				return pattern;
+			}
+			misses++;
+		}
+		// compiled outside the lock, a racing thread may compile the same pattern once more
+		Pattern pattern = Pattern.compile(regex, flags);
+		synchronized (cache) {
+			Pattern raced = cache.get(key);
+			if (raced != null) {
+				return raced;
+			}
+			cache.put(key, pattern);
+			return pattern;
+		}
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public long getHits() {
+		synchronized (cache) {
+			return hits;
+		}
+	}
+
+	public long getMisses() {
+		synchronized (cache) {
+			return misses;
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			hits = 0;
+			misses = 0;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package Common;
+import java.io.IOException;
+
+// Builds separator-joined BDNA_Results values, replacing the
+//   if (!resultString.equals("")) { resultString += "<BDNA,>" + value; } else { resultString = value; }
+// pattern of the scripts, which copies the whole string again for every value. Values are
+// appended to one reusable buffer (reset() keeps its capacity), or written straight through to
+// an output channel when one is given.
+public class BDNAResultWriter {
+
+	// $BDNA_Separator
+	public static final String SEPARATOR = "<BDNA,>";
+
+	private final String separator;
+	private final StringBuilder buffer;
+	private final Appendable out;
+	private int count = 0;
+
+	public BDNAResultWriter() {
+		this(SEPARATOR);
+	}
+
+	public BDNAResultWriter(String separator) {
+		this.separator = separator;
+		this.buffer = new StringBuilder(256);
+		this.out = null;
+	}
+
+	// write through to out (a Writer, the script output stream, ...) instead of buffering
+	public BDNAResultWriter(String separator, Appendable out) {
+		this.separator = separator;
+		this.buffer = null;
+		this.out = out;
+	}
+
+	public BDNAResultWriter add(CharSequence value) {
+		if (count++ > 0) {
+			append(separator);
+		}
+		append(value);
+		return this;
+	}
+
+	// a listener/service style pair, written as first<BDNA,>second
+	public BDNAResultWriter add(CharSequence first, CharSequence second) {
+		add(first);
+		append(separator);
+		append(second);
+		return this;
+	}
+
+	private void append(CharSequence s) {
+		if (buffer != null) {
+			buffer.append(s);
+		} else {
+			try {
+				out.append(s);
+			} catch (IOException e) {
+				throw new RuntimeException("writing BDNA result failed", e);
+			}
+		}
+	}
+
+	public int count() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	// start a new value, keeping the buffer
+	public BDNAResultWriter reset() {
+		if (buffer != null) {
+			buffer.setLength(0);
+		}
+		count = 0;
+		return this;
+	}
+
+	// the joined value, or empty when nothing was added (perl: join(...) || $BDNA_Separator)
+	public String toString(String empty) {
+		return count == 0 ? empty : toString();
+	}
+
+	public String toString() {
+		return buffer == null ? "" : buffer.toString();
+	}
+}
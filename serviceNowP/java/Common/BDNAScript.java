@@ -0,0 +1,17 @@
+package Common;
+import java.util.*;
+
+// Entry point of a discovery script run in-process by ScriptRunner: $BDNA_Params and
+// %BDNA_Connection_Info in, %BDNA_Results out. A script instance is created once and called for
+// every host and stage, from several threads at once, so run() keeps its state in locals.
+public interface BDNAScript {
+
+	// $BDNA_Connection_Info{"HostObject"}, the host name or address
+	String HOST_OBJECT = "HostObject";
+
+	// the BDNAShell the script sends its &shellcmd commands to
+	String SHELL = "Shell";
+
+	Map<String, String> run(Map<String, String> params, Map<String, Object> connectionInfo) throws Exception;
+
+}
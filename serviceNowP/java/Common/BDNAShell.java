@@ -0,0 +1,11 @@
+package Common;
+
+// Java side of the perl &shellcmd($host, $cmd, $tag) call used by the discovery scripts.
+// The scripts only see the output lines; how the command reaches the host is up to the
+// implementation (telnet/ssh connection, local process, canned stub output for testing).
+public interface BDNAShell {
+
+	// run cmd on host and return its output split into lines, tag names the command for logging
+	String[] shellcmd(String host, String cmd, String tag);
+
+}
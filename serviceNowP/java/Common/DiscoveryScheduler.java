@@ -0,0 +1,180 @@
+package Common;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.*;
+
+// Runs the discovery chain (footprint -> installation -> dynamic) for a host inventory, many
+// hosts at a time. A scan of thousands of UNIX hosts is bound by waiting on remote commands,
+// not by CPU, so hosts run on virtual threads when the JVM has them (Java 21+) and on a
+// bounded thread pool otherwise.
+//   - at most maxConcurrent hosts are in their chain at once (fair semaphore),
+//   - hosts start in inventory order (fair ordering, no host is starved by later ones),
+//   - a host whose chain runs past hostTimeoutMillis is interrupted and reported as TIMEOUT,
+//   - a failing stage stops the chain of its host only.
+// Stages pass their results down the chain in the per-host context map.
+public class DiscoveryScheduler {
+
+	public interface HostStage {
+		void run(String host, BDNAShell shell, Map<String, String> context) throws Exception;
+	}
+
+	public static final String OK = "OK", FAILED = "FAILED", TIMEOUT = "TIMEOUT";
+
+	public static class HostResult {
+		private final String host;
+		private String status = OK;
+		private String failedStage = "";
+		private Throwable error;
+		private long elapsedMillis;
+		private final Map<String, String> context = new ConcurrentHashMap<String, String>();
+
+		HostResult(String host) {
+			this.host = host;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		// OK, FAILED or TIMEOUT
+		public String getStatus() {
+			return status;
+		}
+
+		public String getFailedStage() {
+			return failedStage;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public Map<String, String> getContext() {
+			return context;
+		}
+	}
+
+	private final int maxConcurrent;
+	private final long hostTimeoutMillis;
+	private final ArrayList<String> stageNames = new ArrayList<String>();
+	private final ArrayList<HostStage> stages = new ArrayList<HostStage>();
+
+	public DiscoveryScheduler(int maxConcurrent, long hostTimeoutMillis) {
+		this.maxConcurrent = maxConcurrent < 1 ? 1 : maxConcurrent;
+		this.hostTimeoutMillis = hostTimeoutMillis;
+	}
+
+	public DiscoveryScheduler addStage(String name, HostStage stage) {
+		stageNames.add(name);
+		stages.add(stage);
+		return this;
+	}
+
+	// run the chain for every host, results in inventory order
+	public List<HostResult> run(List<String> hosts, final BDNAShell shell) throws InterruptedException {
+		final Semaphore permits = new Semaphore(maxConcurrent, true);
+		final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "DiscoveryScheduler-watchdog");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		ExecutorService executor = newHostExecutor();
+		ArrayList<HostResult> results = new ArrayList<HostResult>();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			for (int i = 0; i < hosts.size(); i++) {
+				final HostResult result = new HostResult(hosts.get(i));
+				results.add(result);
+				// take the permit here, in inventory order, so hosts start in the order given
+				permits.acquire();
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						try {
+							runHost(result, shell, watchdog);
+						} finally {
+							permits.release();
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					results.get(i).status = FAILED;
+					results.get(i).error = e.getCause();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			watchdog.shutdownNow();
+		}
+		return results;
+	}
+
+	private void runHost(HostResult result, BDNAShell shell, ScheduledExecutorService watchdog) {
+		final Thread worker = Thread.currentThread();
+		// {timed out, done}: completed-vs-timeout is decided once under this lock, the watchdog
+		// only interrupts a host that is not done, so no interrupt reaches the next host
+		final boolean[] state = {false, false};
+		ScheduledFuture<?> alarm = null;
+		if (hostTimeoutMillis > 0) {
+			alarm = watchdog.schedule(new Runnable() {
+				public void run() {
+					synchronized (state) {
+						if (!state[1]) {
+							state[0] = true;
+							worker.interrupt();
+						}
+					}
+				}
+			}, hostTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		long start = System.currentTimeMillis();
+		int s = 0;
+		try {
+			for (; s < stages.size(); s++) {
+				if (worker.isInterrupted()) {
+					throw new InterruptedException();
+				}
+				stages.get(s).run(result.host, shell, result.context);
+			}
+		} catch (Throwable e) {
+			result.failedStage = s < stageNames.size() ? stageNames.get(s) : "";
+			result.error = e;
+			result.status = FAILED;
+		} finally {
+			synchronized (state) {
+				state[1] = true;
+				if (state[0]) {
+					result.status = TIMEOUT;
+				}
+			}
+			if (alarm != null) {
+				alarm.cancel(false);
+			}
+			// clear an interrupt that arrived after the last stage, the thread may be pooled; none
+			// can come after done is set
+			Thread.interrupted();
+			// the scripts of the host are done with its find results and filesystem ids
+			SignatureRegistry.release(result.host);
+			HostFilesystemIds.release(result.host);
+			result.elapsedMillis = System.currentTimeMillis() - start;
+		}
+	}
+
+	// one virtual thread per host where the JVM supports it, else a pool as big as the limit
+	private ExecutorService newHostExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return Executors.newFixedThreadPool(maxConcurrent);
+		}
+	}
+}
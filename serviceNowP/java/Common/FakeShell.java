@@ -0,0 +1,73 @@
+package Common;
+import java.util.ArrayList;
+import java.util.*;
+
+// Offline stand-in for remote hosts: answers &shellcmd calls from canned outputs so that
+// scheduling and script chains can run without a network. Rules are matched by tag (and
+// optionally host), the first rule added wins; a fixed latency per call simulates the
+// round trip of a telnet/ssh command.
+public class FakeShell implements BDNAShell {
+
+	private static class Rule {
+		final String host;
+		final String tag;
+		final String[] output;
+
+		Rule(String host, String tag, String[] output) {
+			this.host = host;
+			this.tag = tag;
+			this.output = output;
+		}
+	}
+
+	private final ArrayList<Rule> rules = new ArrayList<Rule>();
+	private final long latencyMillis;
+	private long calls = 0;
+
+	public FakeShell() {
+		this(0);
+	}
+
+	public FakeShell(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	// output for every call with this tag
+	public synchronized FakeShell on(String tag, String... output) {
+		rules.add(new Rule(null, tag, output));
+		return this;
+	}
+
+	// output for calls with this tag on one host
+	public synchronized FakeShell onHost(String host, String tag, String... output) {
+		rules.add(new Rule(host, tag, output));
+		return this;
+	}
+
+	public String[] shellcmd(String host, String cmd, String tag) {
+		String[] output = new String[0];
+		synchronized (this) {
+			calls++;
+			for (int i = 0; i < rules.size(); i++) {
+				Rule rule = rules.get(i);
+				if ((rule.host == null || rule.host.equals(host)) && (rule.tag == null || rule.tag.equals(tag))) {
+					output = rule.output;
+					break;
+				}
+			}
+		}
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("shellcmd " + tag + " on " + host + " interrupted");
+			}
+		}
+		return output.clone();
+	}
+
+	public synchronized long getCalls() {
+		return calls;
+	}
+}
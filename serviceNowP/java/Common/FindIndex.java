@@ -0,0 +1,744 @@
+package Common;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.*;
+
+// Local, memory-mapped index of the file paths of one host, kept between scans in place of the
+// cachedFind($host, 7*24*3600, filePatternList, "/", sigPatterns, ...) output that every
+// footprint module filters again:
+//   - paths are sorted and front-coded in blocks of BLOCK_SIZE (each path stores only what
+//     differs from the one before it), so a full-root find takes a fraction of its text size,
+//   - a basename hash table answers "which paths end with /bin/sqlplus" (or /SYS/exe/run/R3trans,
+//     ...) without reading the other paths,
+//   - refresh() updates the index from the directories whose mtime changed since the last run
+//     (find -newer a stamp file on the host), instead of walking and sending the whole tree;
+//     only the paths under the changed directories are decoded to apply them, and the file is
+//     rewritten only when a path was added or dropped.
+// cachedFind() keeps one index per host, root and filePatternList (a hash of the root and the
+// patterns is part of the file name), so another root or a changed pattern list gets a full find
+// of its own instead of a stale index. Every index has its own stamp on the host, named after the
+// collector, the index file and the root, so indexes of other roots or collectors do not move
+// each other's stamp.
+// A full find is sorted in runs of RUN_CHARS spilled next to the index and merged straight into
+// the index file, and the index is written as it is read: memory stays bounded by the run size,
+// not by the number of paths on the host.
+// A directory moved in with an old mtime is only seen by the next full build (maxAge).
+public class FindIndex {
+
+	public static final int BLOCK_SIZE = 16;
+
+	// the characters of find output sorted in memory before a run is spilled to a temp file
+	static final int RUN_CHARS = 4 << 20;
+
+	// the stamp files on the host, touched before each full find or refresh
+	public static final String STAMP_PREFIX = "/var/tmp/.bdna_find_stamp_";
+
+	// -Dbdna.collector names this collector in the stamps, the local host name by default
+	private static final String COLLECTOR = collector();
+
+	private static final byte[] MAGIC = "BDNAFIX1".getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER = 8 + 8 + 4 * 4;
+	private static final String DIR_MARKER = "__BDNA_DIR__";
+	private static final String NO_STAMP = "__BDNA_NO_STAMP__";
+
+	private final File file;
+	private final MappedByteBuffer data;
+	private final long created;
+	private final int count;
+	private final int blocksOffset;
+	private final int hashOffset;
+	private final int hashSize;
+
+	private FindIndex(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+		byte[] magic = new byte[MAGIC.length];
+		data.get(0, magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException(file + " is not a find index");
+		}
+		this.created = data.getLong(8);
+		this.count = data.getInt(16);
+		this.blocksOffset = data.getInt(20);
+		this.hashOffset = data.getInt(24);
+		this.hashSize = data.getInt(28);
+	}
+
+	private static String collector() {
+		String id = System.getProperty("bdna.collector");
+		if (id != null) {
+			return id;
+		}
+		try {
+			return java.net.InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	// the stamp on the host of the index in file over root
+	public static String stamp(File file, String root) {
+		String key = COLLECTOR + "|" + file.getAbsolutePath() + "|" + root;
+		return STAMP_PREFIX + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// map an index written before
+	public static FindIndex open(File file) throws IOException {
+		return new FindIndex(file);
+	}
+
+	// write an index of paths (any order, duplicates and line endings are dropped) and map it
+	public static FindIndex build(File file, Collection<String> paths) throws IOException {
+		long start = BDNAMetrics.start();
+		PathSorter sorter = new PathSorter(file);
+		try {
+			for (String path : paths) {
+				String one = FindOutputReader.chomp(path);
+				if (one.length() > 0) {
+					sorter.add(one);
+				}
+			}
+			FindIndex index = sorter.write(System.currentTimeMillis());
+			BDNAMetrics.parse("find_index", start, paths.size());
+			return index;
+		} finally {
+			sorter.close();
+		}
+	}
+
+	// sorted: paths in String order without duplicates
+	private static FindIndex write(File file, Collection<String> sorted, long created) throws IOException {
+		IndexWriter writer = new IndexWriter(file, created);
+		try {
+			for (String path : sorted) {
+				writer.add(path);
+			}
+			return writer.finish();
+		} finally {
+			writer.close();
+		}
+	}
+
+	// Writes an index file from paths given in sorted order, without holding them: the
+	// front-coded blocks go to a temp file next to the index as they come, the basename hash of
+	// every path to a second one, and the hash table is filled in a mapped region of the temp
+	// file once the count is known. The temp file is then moved over the index, readers of the
+	// old mapping and other writers of the same index are not disturbed.
+	private static class IndexWriter {
+		private final File file;
+		private final long created;
+		private final File tmp;
+		private final File hashes;
+		private final DataOutputStream out;
+		private final DataOutputStream hashOut;
+		private int[] blockOffsets = new int[64];
+		private long position = HEADER;
+		private byte[] previous = new byte[0];
+		private int count = 0;
+
+		IndexWriter(File file, long created) throws IOException {
+			this.file = file;
+			this.created = created;
+			File dir = file.getAbsoluteFile().getParentFile();
+			tmp = File.createTempFile(file.getName() + ".new", ".tmp", dir);
+			hashes = File.createTempFile(file.getName() + ".hash", ".tmp", dir);
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+			hashOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(hashes), 64 * 1024));
+			// the header is written last, over these bytes
+			out.write(new byte[HEADER]);
+		}
+
+		void add(String path) throws IOException {
+			byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+			if (count % BLOCK_SIZE == 0) {
+				if (count / BLOCK_SIZE == blockOffsets.length) {
+					blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+				}
+				if (position > Integer.MAX_VALUE) {
+					throw new IOException(file + " would be larger than 2 GB");
+				}
+				blockOffsets[count / BLOCK_SIZE] = (int) position;
+				position += writeVarint(out, bytes.length);
+				out.write(bytes, 0, bytes.length);
+				position += bytes.length;
+			} else {
+				int shared = 0;
+				int max = Math.min(previous.length, bytes.length);
+				while (shared < max && previous[shared] == bytes[shared]) {
+					shared++;
+				}
+				position += writeVarint(out, shared);
+				position += writeVarint(out, bytes.length - shared);
+				out.write(bytes, shared, bytes.length - shared);
+				position += bytes.length - shared;
+			}
+			hashOut.writeInt(spread(basename(path).hashCode()));
+			previous = bytes;
+			count++;
+		}
+
+		FindIndex finish() throws IOException {
+			int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			int hashSize = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+			long hashOffset = position + 4L * blocks;
+			if (hashOffset + 4L * hashSize > Integer.MAX_VALUE) {
+				throw new IOException(file + " would be larger than 2 GB");
+			}
+			for (int b = 0; b < blocks; b++) {
+				out.writeInt(blockOffsets[b]);
+			}
+			out.close();
+			hashOut.close();
+			RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+			try {
+				FileChannel channel = raf.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(HEADER);
+				header.put(MAGIC).putLong(created).putInt(count).putInt((int) position).putInt((int) hashOffset).putInt(hashSize);
+				header.flip();
+				channel.write(header, 0);
+				// linear probing over the mapped table, the file grows to hold it
+				MappedByteBuffer hash = channel.map(FileChannel.MapMode.READ_WRITE, hashOffset, 4L * hashSize);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hashes), 64 * 1024));
+				try {
+					for (int ordinal = 0; ordinal < count; ordinal++) {
+						int slot = in.readInt() & (hashSize - 1);
+						while (hash.getInt(4 * slot) != 0) {
+							slot = (slot + 1) & (hashSize - 1);
+						}
+						hash.putInt(4 * slot, ordinal + 1);
+					}
+				} finally {
+					in.close();
+				}
+				hash.force();
+			} finally {
+				raf.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return new FindIndex(file);
+		}
+
+		// drop the temp files, the index is kept when finish() moved it in
+		void close() {
+			try {
+				out.close();
+			} catch (IOException e) {
+			}
+			try {
+				hashOut.close();
+			} catch (IOException e) {
+			}
+			tmp.delete();
+			hashes.delete();
+		}
+	}
+
+	// Sorts the paths of a full find without holding them all: RUN_CHARS of them are sorted in
+	// memory and spilled to a temp file next to the index, and the runs are merged without
+	// duplicates into an IndexWriter. A find that fits in one run never touches the disk twice.
+	private static class PathSorter {
+		private final File file;
+		private final ArrayList<String> run = new ArrayList<String>();
+		private final ArrayList<File> runs = new ArrayList<File>();
+		private long chars = 0;
+
+		PathSorter(File file) {
+			this.file = file;
+		}
+
+		void add(String path) throws IOException {
+			run.add(path);
+			chars += path.length();
+			if (chars >= RUN_CHARS) {
+				spill();
+			}
+		}
+
+		private void spill() throws IOException {
+			Collections.sort(run);
+			File spilled = File.createTempFile(file.getName() + ".run", ".tmp", file.getAbsoluteFile().getParentFile());
+			runs.add(spilled);
+			Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spilled), StandardCharsets.UTF_8), 64 * 1024);
+			try {
+				String previous = null;
+				for (int i = 0; i < run.size(); i++) {
+					if (!run.get(i).equals(previous)) {
+						previous = run.get(i);
+						out.write(previous);
+						out.write('\n');
+					}
+				}
+			} finally {
+				out.close();
+			}
+			run.clear();
+			chars = 0;
+		}
+
+		// the index of every path added, in order and without duplicates
+		FindIndex write(long created) throws IOException {
+			IndexWriter writer = new IndexWriter(file, created);
+			try {
+				String previous = null;
+				if (runs.isEmpty()) {
+					Collections.sort(run);
+					for (int i = 0; i < run.size(); i++) {
+						if (!run.get(i).equals(previous)) {
+							previous = run.get(i);
+							writer.add(previous);
+						}
+					}
+					return writer.finish();
+				}
+				if (!run.isEmpty()) {
+					spill();
+				}
+				// k-way merge: the run whose next path is the smallest is read next
+				PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(runs.size(), new Comparator<RunReader>() {
+					public int compare(RunReader a, RunReader b) {
+						return a.path.compareTo(b.path);
+					}
+				});
+				ArrayList<RunReader> readers = new ArrayList<RunReader>();
+				try {
+					for (int r = 0; r < runs.size(); r++) {
+						RunReader reader = new RunReader(runs.get(r));
+						readers.add(reader);
+						if (reader.next()) {
+							queue.add(reader);
+						}
+					}
+					while (!queue.isEmpty()) {
+						RunReader reader = queue.poll();
+						if (!reader.path.equals(previous)) {
+							previous = reader.path;
+							writer.add(previous);
+						}
+						if (reader.next()) {
+							queue.add(reader);
+						}
+					}
+				} finally {
+					for (int r = 0; r < readers.size(); r++) {
+						readers.get(r).in.close();
+					}
+				}
+				return writer.finish();
+			} finally {
+				writer.close();
+			}
+		}
+
+		void close() {
+			for (int r = 0; r < runs.size(); r++) {
+				runs.get(r).delete();
+			}
+			runs.clear();
+			run.clear();
+		}
+	}
+
+	private static class RunReader {
+		final BufferedReader in;
+		String path;
+
+		RunReader(File run) throws IOException {
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(run), StandardCharsets.UTF_8), 64 * 1024);
+		}
+
+		boolean next() throws IOException {
+			path = in.readLine();
+			return path != null;
+		}
+	}
+
+	// the bytes written
+	private static int writeVarint(OutputStream out, int value) throws IOException {
+		int written = 1;
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+			written++;
+		}
+		out.write(value);
+		return written;
+	}
+
+	// the murmur3 finalizer: basenames that differ in their last digits (file1, file2, ...) have
+	// neighbouring String hashes, which a plain h ^ h >>> 16 leaves in one long probe run
+	private static int spread(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		return h ^ (h >>> 16);
+	}
+
+	static String basename(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	// when the index was last built by a full find, refreshes keep it
+	public long getCreated() {
+		return created;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	// the path with the given ordinal, in sorted order
+	public String path(int ordinal) {
+		if (ordinal < 0 || ordinal >= count) {
+			throw new IndexOutOfBoundsException("path " + ordinal + " of " + count);
+		}
+		ByteBuffer buf = data.duplicate();
+		buf.position(data.getInt(blocksOffset + 4 * (ordinal / BLOCK_SIZE)));
+		int len = readVarint(buf);
+		byte[] bytes = new byte[Math.max(64, len)];
+		buf.get(bytes, 0, len);
+		for (int i = ordinal % BLOCK_SIZE; i > 0; i--) {
+			int shared = readVarint(buf);
+			int suffix = readVarint(buf);
+			len = shared + suffix;
+			if (len > bytes.length) {
+				bytes = Arrays.copyOf(bytes, len * 2);
+			}
+			buf.get(bytes, shared, suffix);
+		}
+		return new String(bytes, 0, len, StandardCharsets.UTF_8);
+	}
+
+	// the ordinal of the first path not below key
+	private int lowerBound(String key) {
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (path(mid).compareTo(key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static int readVarint(ByteBuffer buf) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buf.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	// feed every path to handler in sorted order, returns the count
+	public int read(FindOutputReader.LineHandler handler) {
+		ByteBuffer buf = data.duplicate();
+		byte[] bytes = new byte[256];
+		int len = 0;
+		for (int ordinal = 0; ordinal < count; ordinal++) {
+			int shared = 0;
+			int suffix;
+			if (ordinal % BLOCK_SIZE == 0) {
+				buf.position(data.getInt(blocksOffset + 4 * (ordinal / BLOCK_SIZE)));
+				suffix = readVarint(buf);
+			} else {
+				shared = readVarint(buf);
+				suffix = readVarint(buf);
+			}
+			len = shared + suffix;
+			if (len > bytes.length) {
+				bytes = Arrays.copyOf(bytes, len * 2);
+			}
+			buf.get(bytes, shared, suffix);
+			handler.line(new String(bytes, 0, len, StandardCharsets.UTF_8));
+		}
+		return count;
+	}
+
+	// the paths named name
+	public List<String> byBasename(String name) {
+		ArrayList<String> found = new ArrayList<String>();
+		int slot = spread(name.hashCode()) & (hashSize - 1);
+		while (true) {
+			int ordinal = data.getInt(hashOffset + 4 * slot) - 1;
+			if (ordinal < 0) {
+				return found;
+			}
+			String path = path(ordinal);
+			if (path.length() > name.length() && path.endsWith(name) && path.charAt(path.length() - name.length() - 1) == '/') {
+				found.add(path);
+			}
+			slot = (slot + 1) & (hashSize - 1);
+		}
+	}
+
+	// the paths ending with one of the signature files, as find output lines for handler (a
+	// SignatureScan): only the hash buckets of the signature basenames are read
+	public int select(String[] sigFiles, FindOutputReader.LineHandler handler) {
+		int selected = 0;
+		HashSet<String> names = new HashSet<String>();
+		for (int i = 0; i < sigFiles.length; i++) {
+			names.add(basename(sigFiles[i]));
+		}
+		for (String name : names) {
+			List<String> paths = byBasename(name);
+			for (int p = 0; p < paths.size(); p++) {
+				for (int i = 0; i < sigFiles.length; i++) {
+					if (paths.get(p).endsWith(sigFiles[i])) {
+						handler.line(paths.get(p));
+						selected++;
+						break;
+					}
+				}
+			}
+		}
+		return selected;
+	}
+
+	// full find of root, keeping the paths that end with one of filePatterns (all if null); stamp
+	// is touched first, null for a find that feeds no index
+	public static String findCommand(String stamp, String root, String[] filePatterns) {
+		String cmd = (stamp == null ? "" : "touch " + stamp + "\n") + "find '" + root + "' -print 2> /dev/null";
+		if (filePatterns != null && filePatterns.length > 0) {
+			cmd += " | egrep '" + suffixRegex(filePatterns) + "'";
+		}
+		return cmd;
+	}
+
+	// the directories changed since the stamp, each followed by its entries (ls -p: dirs end with /)
+	public static String refreshCommand(String stamp, String root) {
+		return "[ -f " + stamp + " ] || echo " + NO_STAMP + "\n"
+			+ "touch " + stamp + ".next" + "\n"
+			+ "find '" + root + "' -type d -newer " + stamp + " -print 2> /dev/null | while read d; do echo \"" + DIR_MARKER + "$d\"; ls -1ap \"$d\" 2> /dev/null; done" + "\n"
+			+ "mv " + stamp + ".next " + stamp;
+	}
+
+	static String suffixRegex(String[] filePatterns) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < filePatterns.length; i++) {
+			if (i > 0) {
+				regex.append('|');
+			}
+			String pattern = filePatterns[i];
+			for (int c = 0; c < pattern.length(); c++) {
+				char ch = pattern.charAt(c);
+				if ("\\.[]()*+?{}|^$".indexOf(ch) >= 0) {
+					regex.append('\\');
+				}
+				if (ch == '\'') {
+					regex.append("'\\''");
+				} else {
+					regex.append(ch);
+				}
+			}
+			regex.append('$');
+		}
+		return regex.toString();
+	}
+
+	// apply the refreshCommand output: entries gone from a changed directory are dropped (with
+	// everything under them), new entries that end with one of filePatterns (all if null) are
+	// added. Returns this index when nothing changed.
+	public FindIndex refresh(String[] output, String[] filePatterns) throws IOException {
+		if (output.length > 0 && FindOutputReader.chomp(output[0]).equals(NO_STAMP)) {
+			throw new IOException("no find stamp on the host, the index needs a full find");
+		}
+		// the changed directories (with a trailing /) and their entries, in the order listed
+		ArrayList<String> dirs = new ArrayList<String>();
+		ArrayList<Set<String>> listings = new ArrayList<Set<String>>();
+		Set<String> entries = null;
+		for (int i = 0; i < output.length; i++) {
+			String line = FindOutputReader.chomp(output[i]);
+			if (line.startsWith(DIR_MARKER)) {
+				String dir = line.substring(DIR_MARKER.length());
+				entries = new HashSet<String>();
+				dirs.add(dir.endsWith("/") ? dir : dir + "/");
+				listings.add(entries);
+			} else if (entries != null && line.length() > 0 && !line.equals("./") && !line.equals("../")) {
+				entries.add(line);
+			}
+		}
+		if (dirs.isEmpty()) {
+			return this;
+		}
+		SignatureMatcher filter = filePatterns == null || filePatterns.length == 0 ? null : new SignatureMatcher(filePatterns);
+		// the paths under a changed directory are one ordinal range; nested changed directories
+		// are applied inside the range of the outermost one
+		ArrayList<int[]> ranges = new ArrayList<int[]>();
+		ArrayList<TreeSet<String>> replaced = new ArrayList<TreeSet<String>>();
+		boolean changed = false;
+		String top = null;
+		for (String prefix : new TreeSet<String>(dirs)) {
+			if (top != null && prefix.startsWith(top)) {
+				continue;
+			}
+			top = prefix;
+			int from = lowerBound(top);
+			int to = lowerBound(top + Character.MAX_VALUE);
+			TreeSet<String> paths = new TreeSet<String>();
+			for (int ordinal = from; ordinal < to; ordinal++) {
+				paths.add(path(ordinal));
+			}
+			for (int d = 0; d < dirs.size(); d++) {
+				if (dirs.get(d).startsWith(top)) {
+					changed |= applyListing(paths, dirs.get(d), listings.get(d), filter);
+				}
+			}
+			ranges.add(new int[] {from, to});
+			replaced.add(paths);
+		}
+		if (!changed) {
+			return this;
+		}
+		// one sequential pass straight into the new file: the paths outside the ranges are copied,
+		// each applied range goes in at its first ordinal
+		final IndexWriter writer = new IndexWriter(file, created);
+		try {
+			final ArrayList<int[]> at = ranges;
+			final ArrayList<TreeSet<String>> with = replaced;
+			final IOException[] failed = {null};
+			read(new FindOutputReader.LineHandler() {
+				private int ordinal = 0;
+				private int r = 0;
+
+				public void line(String path) {
+					int o = ordinal++;
+					if (failed[0] != null) {
+						return;
+					}
+					try {
+						while (r < at.size() && at.get(r)[0] <= o) {
+							if (with.get(r) != null) {
+								addAll(writer, with.get(r));
+								with.set(r, null);
+							}
+							if (o < at.get(r)[1]) {
+								return;
+							}
+							r++;
+						}
+						writer.add(path);
+					} catch (IOException e) {
+						failed[0] = e;
+					}
+				}
+			});
+			if (failed[0] != null) {
+				throw failed[0];
+			}
+			for (int r = 0; r < replaced.size(); r++) {
+				if (replaced.get(r) != null) {
+					addAll(writer, replaced.get(r));
+				}
+			}
+			return writer.finish();
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static void addAll(IndexWriter writer, Collection<String> paths) throws IOException {
+		for (String path : paths) {
+			writer.add(path);
+		}
+	}
+
+	// true when a path was dropped or added
+	private static boolean applyListing(TreeSet<String> paths, String prefix, Set<String> entries, SignatureMatcher filter) {
+		boolean changed = false;
+		// drop what is no longer listed, the subtree of a removed directory goes with it
+		Iterator<String> under = paths.subSet(prefix, true, prefix + Character.MAX_VALUE, false).iterator();
+		while (under.hasNext()) {
+			String path = under.next();
+			int slash = path.indexOf('/', prefix.length());
+			String child = path.substring(prefix.length(), slash < 0 ? path.length() : slash);
+			if (!entries.contains(child + "/") && (slash >= 0 || !entries.contains(child))) {
+				under.remove();
+				changed = true;
+			}
+		}
+		for (String entry : entries) {
+			String path = prefix + (entry.endsWith("/") ? entry.substring(0, entry.length() - 1) : entry);
+			if (filter == null || filter.match(path) >= 0) {
+				changed |= paths.add(path);
+			}
+		}
+		return changed;
+	}
+
+	// the index file of host over root with filePatterns (null or none: every path)
+	static File indexFile(File dir, String host, String root, String[] filePatterns) {
+		StringBuilder key = new StringBuilder(root);
+		if (filePatterns != null) {
+			String[] patterns = filePatterns.clone();
+			Arrays.sort(patterns);
+			for (int i = 0; i < patterns.length; i++) {
+				key.append('\0').append(patterns[i]);
+			}
+		}
+		return new File(dir, "find_" + host.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + UUID.nameUUIDFromBytes(key.toString().getBytes(StandardCharsets.UTF_8)) + ".idx");
+	}
+
+	// the index of host under dir: refreshed when younger than maxAgeMillis, found again otherwise
+	// (the cachedFind TTL)
+	public static FindIndex cachedFind(File dir, BDNAShell shell, String host, long maxAgeMillis, String[] filePatterns, String root) throws IOException {
+		File file = indexFile(dir, host, root, filePatterns);
+		if (file.exists()) {
+			try {
+				FindIndex index = open(file);
+				if (System.currentTimeMillis() - index.getCreated() < maxAgeMillis) {
+					return index.refresh(shell.shellcmd(host, refreshCommand(stamp(file, root), root), "find_refresh"), filePatterns);
+				}
+			} catch (IOException e) {
+				// unreadable index, built again below
+			}
+		}
+		// the paths go straight into the sorted runs, not through a String[] of the whole output
+		final PathSorter sorter = new PathSorter(file);
+		try {
+			final IOException[] failed = {null};
+			long created = System.currentTimeMillis();
+			long lines = FindOutputReader.read(shell, host, findCommand(stamp(file, root), root, filePatterns), "find", new FindOutputReader.LineHandler() {
+				public void line(String line) {
+					if (line.length() > 0 && failed[0] == null) {
+						try {
+							sorter.add(line);
+						} catch (IOException e) {
+							failed[0] = e;
+						}
+					}
+				}
+			});
+			if (failed[0] != null) {
+				throw failed[0];
+			}
+			long start = BDNAMetrics.start();
+			FindIndex index = sorter.write(created);
+			BDNAMetrics.parse("find_index", start, (int) lines);
+			return index;
+		} finally {
+			sorter.close();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package Common;
+import java.io.*;
+
+// Streams cachedFind output to a LineHandler one line at a time. Read from a StreamingShell
+// (PersistentShell, LocalShell) a full-root find never has to be held as a String[]; any other
+// BDNAShell still returns the whole output first. Line endings are stripped without a regex.
+public class FindOutputReader {
+
+	public interface LineHandler {
+		void line(String line);
+	}
+
+	// feed every line of in to handler, returns the number of lines read
+	public static long read(Reader in, LineHandler handler) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 64 * 1024);
+		long count = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			handler.line(chomp(line));
+			count++;
+		}
+		return count;
+	}
+
+	public static long read(InputStream in, String charset, LineHandler handler) throws IOException {
+		return read(new InputStreamReader(in, charset), handler);
+	}
+
+	// run cmd on host and feed its output to handler, streamed when shell is a StreamingShell
+	public static long read(BDNAShell shell, String host, String cmd, String tag, final LineHandler handler) {
+		if (shell instanceof StreamingShell) {
+			return ((StreamingShell) shell).shellcmd(host, cmd, tag, new LineHandler() {
+				public void line(String line) {
+					handler.line(chomp(line));
+				}
+			});
+		}
+		return read(shell.shellcmd(host, cmd, tag), handler);
+	}
+
+	// the old String[] form of the cachedFind output
+	public static long read(String[] output, LineHandler handler) {
+		for (int i = 0; i < output.length; i++) {
+			handler.line(chomp(output[i]));
+		}
+		return output.length;
+	}
+
+	// same as line.replaceAll("\r|\n", "") without compiling a pattern or copying clean lines
+	public static String chomp(String line) {
+		int len = line.length();
+		int i = 0;
+		while (i < len) {
+			char c = line.charAt(i);
+			if (c == '\r' || c == '\n') {
+				break;
+			}
+			i++;
+		}
+		if (i == len) {
+			return line;
+		}
+		StringBuilder sb = new StringBuilder(len);
+		sb.append(line, 0, i);
+		for (; i < len; i++) {
+			char c = line.charAt(i);
+			if (c != '\r' && c != '\n') {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
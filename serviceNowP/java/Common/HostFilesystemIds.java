@@ -0,0 +1,217 @@
+package Common;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.*;
+
+// Device and inode of every installation directory of a host, collected with one command:
+//   uname, then for each directory  echo `ls -Lid dir` __BDNA_RESULT__  and  df -k dir (bdf on HP-UX)
+// instead of the uname, df_k and inode round trips the installation scripts make for every home
+// to build their uniqueIdentifier. The df still runs per directory on the host, so a home reached
+// through a symlink gets the device it really lives on. Oracle, Sybase, SAP and WebLogic homes
+// found twice (oratab and find, a symlink and its target, ...) are recognized by their ids.
+// forHost() keeps the ids of a host for the scripts of one scan: the footprint collects all its
+// homes, the installation scripts of those homes then find theirs without a round trip.
+public class HostFilesystemIds {
+
+	// a host's ids are shared by the scripts of one scan, a later scan collects them again
+	public static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+
+	private static final ConcurrentHashMap<String, HostFilesystemIds> hosts = new ConcurrentHashMap<String, HostFilesystemIds>();
+
+	private static final String DIR_MARKER = "__BDNA_DIR__";
+	private static final String RESULT_MARKER = " __BDNA_RESULT__";
+	private static final Pattern networkPath = Pattern.compile("^\\S+:/\\S*$");
+
+	public static class Id {
+		private final String device;
+		private final String inode;
+
+		Id(String device, String inode) {
+			this.device = device;
+			this.inode = inode;
+		}
+
+		// the df file system with / . \ : turned into _, "" when df gave nothing usable
+		public String getDevice() {
+			return device;
+		}
+
+		public String getInode() {
+			return inode;
+		}
+
+		// inode followed by the device, the uniqueIdentifier of the installation
+		public String getUniqueIdentifier() {
+			return inode + device;
+		}
+	}
+
+	private final String hostType;
+	private final LinkedHashMap<String, Id> ids = new LinkedHashMap<String, Id>();
+	// the dirs asked for, also the ones ls -Lid failed for
+	private final HashSet<String> asked = new HashSet<String>();
+	private long created = System.currentTimeMillis();
+
+	private HostFilesystemIds(String hostType) {
+		this.hostType = hostType;
+	}
+
+	public static HostFilesystemIds collect(BDNAShell shell, String host, Collection<String> dirs) {
+		HostFilesystemIds result = parse(shell.shellcmd(host, command(dirs), "filesystem_ids"));
+		result.asked.addAll(dirs);
+		return result;
+	}
+
+	// the ids of dirs on host, with the ones collected earlier in the scan; only the dirs not
+	// asked for yet go to the host, in one command. The result is not changed afterwards, a
+	// later call with more dirs publishes a merged copy.
+	public static HostFilesystemIds forHost(BDNAShell shell, String host, Collection<String> dirs) {
+		HostFilesystemIds known = hosts.get(host);
+		if (known != null && System.currentTimeMillis() - known.created > MAX_AGE_MILLIS) {
+			hosts.remove(host, known);
+			known = null;
+		}
+		ArrayList<String> missing = new ArrayList<String>();
+		for (String dir : dirs) {
+			if (known == null || !known.asked.contains(dir)) {
+				missing.add(dir);
+			}
+		}
+		if (missing.isEmpty()) {
+			return known;
+		}
+		HostFilesystemIds collected = collect(shell, host, missing);
+		if (known != null) {
+			HostFilesystemIds merged = new HostFilesystemIds(collected.hostType.length() > 0 ? collected.hostType : known.hostType);
+			merged.ids.putAll(known.ids);
+			merged.ids.putAll(collected.ids);
+			merged.asked.addAll(known.asked);
+			merged.asked.addAll(collected.asked);
+			merged.created = known.created;
+			collected = merged;
+		}
+		// two scripts collecting at once: the last one wins, the other's dirs are asked again
+		hosts.put(host, collected);
+		return collected;
+	}
+
+	// drop the ids of host once its scan is done
+	public static void release(String host) {
+		hosts.remove(host);
+	}
+
+	// the df flavour is picked on the host like the scripts did with the uname output; other
+	// UNIXes get no df and their ids are the inode alone
+	public static String command(Collection<String> dirs) {
+		StringBuilder cmd = new StringBuilder();
+		cmd.append("uname").append("\n");
+		cmd.append("case `uname` in SunOS|AIX|Linux|OSF1|IRIX|IRIX64) DF='df -k';; HP-UX) DF=bdf;; *) DF=;; esac").append("\n");
+		cmd.append("for d in");
+		for (String dir : dirs) {
+			cmd.append(" '").append(dir.replace("'", "'\\''")).append("'");
+		}
+		cmd.append("; do").append("\n");
+		cmd.append("echo \"" + DIR_MARKER + "$d\"").append("\n");
+		cmd.append("echo `ls -Lid \"$d\"`" + RESULT_MARKER).append("\n");
+		cmd.append("[ -n \"$DF\" ] && $DF \"$d\" | awk '{print $1}'").append("\n");
+		cmd.append("done");
+		return cmd.toString();
+	}
+
+	public static HostFilesystemIds parse(String[] output) {
+		long start = BDNAMetrics.start();
+		HostFilesystemIds result = new HostFilesystemIds(output.length > 0 ? FindOutputReader.chomp(output[0]) : "");
+		String dir = null, inode = "", device = null;
+		for (int i = 1; i <= output.length; i++) {
+			String line = i < output.length ? FindOutputReader.chomp(output[i]) : null;
+			if (line != null && !line.startsWith(DIR_MARKER)) {
+				if (dir == null) {
+					continue;
+				}
+				if (line.endsWith(RESULT_MARKER)) {
+					//if (/(\d+) $home __BDNA_RESULT__/)
+					String ls = line.substring(0, line.length() - RESULT_MARKER.length()).trim();
+					int space = ls.indexOf(' ');
+					if (space > 0 && ls.substring(space + 1).equals(dir) && isNumber(ls.substring(0, space))) {
+						inode = ls.substring(0, space);
+					}
+				} else if (device == null && !line.startsWith("Filesystem")) {
+					// the first line after the df header
+					device = deviceName(line);
+				}
+				continue;
+			}
+			if (dir != null && inode.length() > 0) {
+				result.ids.put(dir, new Id(device == null ? "" : device, inode));
+			}
+			if (line != null) {
+				dir = line.substring(DIR_MARKER.length());
+				inode = "";
+				device = null;
+			}
+		}
+		BDNAMetrics.parse("filesystem_ids", start, output.length);
+		return result;
+	}
+
+	// perl: $temp =~ s/^\s+//; $temp =~ s/\s+$//; ... $dev_name =~ s/[\/\.\\\:]/_/g;
+	static String deviceName(String line) {
+		String temp = line.trim();
+		String devName = "";
+		if (temp.indexOf('(') < 0 && temp.indexOf(')') < 0) {
+			// ensure parsed value is file path or some network file path.
+			if (networkPath.matcher(temp).find() || temp.startsWith("/")) {
+				devName = temp;
+			}
+		}
+		StringBuilder name = new StringBuilder(devName.length());
+		for (int c = 0; c < devName.length(); c++) {
+			char ch = devName.charAt(c);
+			name.append(ch == '/' || ch == '.' || ch == '\\' || ch == ':' ? '_' : ch);
+		}
+		return name.toString();
+	}
+
+	private static boolean isNumber(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return s.length() > 0;
+	}
+
+	// the uname output
+	public String getHostType() {
+		return hostType;
+	}
+
+	// device and inode of dir, null when ls -Lid failed for it
+	public Id get(String dir) {
+		return ids.get(dir);
+	}
+
+	// the uniqueIdentifier of dir, "" when unknown
+	public String uniqueIdentifier(String dir) {
+		Id id = ids.get(dir);
+		return id == null ? "" : id.getUniqueIdentifier();
+	}
+
+	public Map<String, Id> getIds() {
+		return Collections.unmodifiableMap(ids);
+	}
+
+	// dirs without the ones that are the same directory as an earlier one; dirs without an id are kept
+	public ArrayList<String> dedupe(Collection<String> dirs) {
+		ArrayList<String> unique = new ArrayList<String>();
+		HashSet<String> seen = new HashSet<String>();
+		for (String dir : dirs) {
+			String uid = uniqueIdentifier(dir);
+			if (uid.length() == 0 || seen.add(uid)) {
+				unique.add(dir);
+			}
+		}
+		return unique;
+	}
+}
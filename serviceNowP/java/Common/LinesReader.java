@@ -0,0 +1,46 @@
+package Common;
+import java.io.Reader;
+
+// Reader over the lines of a &shellcmd output, so a parser can stream it without the lines
+// being joined into one big String first. A '\n' is supplied after every line.
+public class LinesReader extends Reader {
+
+	private final String[] lines;
+	private int line = 0;
+	private int pos = 0;
+
+	public LinesReader(String[] lines) {
+		this(lines, 0);
+	}
+
+	// start at line first, e.g. to skip shell noise in front of a document
+	public LinesReader(String[] lines, int first) {
+		this.lines = lines;
+		this.line = first;
+	}
+
+	public int read(char[] cbuf, int off, int len) {
+		if (line >= lines.length) {
+			return -1;
+		}
+		int n = 0;
+		while (n < len && line < lines.length) {
+			String current = lines[line] == null ? "" : lines[line];
+			if (pos < current.length()) {
+				int count = Math.min(len - n, current.length() - pos);
+				current.getChars(pos, pos + count, cbuf, off + n);
+				pos += count;
+				n += count;
+			} else {
+				cbuf[off + n++] = '\n';
+				line++;
+				pos = 0;
+			}
+		}
+		return n;
+	}
+
+	public void close() {
+		line = lines.length;
+	}
+}
@@ -0,0 +1,12 @@
+package Common;
+import java.util.*;
+
+// PersistentShell whose sessions are local /bin/sh processes, for running the scripts and their
+// shell commands against the machine the JVM runs on (tests, fake ORACLE_HOME trees). Every host
+// name still gets its own session and environment context.
+public class LocalShell extends PersistentShell {
+
+	public LocalShell() {
+		super(Arrays.asList("/bin/sh"));
+	}
+}
@@ -0,0 +1,357 @@
+package Common;
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.*;
+
+// RemoteShell over one long-lived /bin/sh per host (started through ssh, or locally by
+// LocalShell). Commands are written to the shell's stdin back to back and their output is read
+// up to a sentinel line:
+//   ( cmd
+//   ) < /dev/null 2>&1
+//   echo "__BDNA_RESULT__<n>"
+// Each command runs in a subshell so that its cd/ORACLE_SID/... settings do not leak into the
+// next one, while the variables exported for the environment context are inherited; a command
+// without a context runs in the base (empty) one, so an ORACLE_HOME exported for an earlier
+// command does not stay set for it. stdin is /dev/null so a command cannot swallow the commands
+// queued behind it.
+// Each host has a small pool of sessions: up to sessionsPerHost commands run on a host at once,
+// each on its own session, and a session whose context already fits is preferred.
+// A new session first echoes sentinel 0 and everything before it (ssh banners and MOTD, merged
+// from stderr) is dropped. A command running past the timeout kills its session with the
+// processes under it, as readLine cannot be interrupted, and the session is never reused.
+public class PersistentShell implements RemoteShell, StreamingShell {
+
+	public static final String SENTINEL = "__BDNA_RESULT__";
+	public static final int DEFAULT_SESSIONS_PER_HOST = 4;
+	public static final long DEFAULT_COMMAND_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+	private static final Map<String, String> BASE_ENV = Collections.emptyMap();
+
+	private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "PersistentShell-timeout");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private static class Session {
+		final Process process;
+		final Writer stdin;
+		final BufferedReader stdout;
+		Map<String, String> env = new HashMap<String, String>();
+		long serial = 0;
+		volatile boolean timedOut = false;
+
+		Session(Process process) {
+			this.process = process;
+			// ISO-8859-1 passes the bytes of the remote locale through unchanged
+			this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), java.nio.charset.StandardCharsets.ISO_8859_1));
+			this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), java.nio.charset.StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	// the sessions of one host: idle ones, and how many are open or being opened
+	private static class HostSessions {
+		final LinkedList<Session> idle = new LinkedList<Session>();
+		int open = 0;
+		boolean closed = false;
+	}
+
+	private final List<String> launch;
+	private final ConcurrentHashMap<String, HostSessions> hosts = new ConcurrentHashMap<String, HostSessions>();
+	private int sessionsPerHost = DEFAULT_SESSIONS_PER_HOST;
+	private long commandTimeoutMillis = DEFAULT_COMMAND_TIMEOUT_MILLIS;
+	private long opened = 0;
+	private long commands = 0;
+
+	// launch is the command line that opens a shell on the host, "%h" is replaced by the host
+	public PersistentShell(List<String> launch) {
+		this.launch = new ArrayList<String>(launch);
+	}
+
+	// one ssh connection per host running a plain /bin/sh
+	public static PersistentShell ssh(String... options) {
+		List<String> launch = new ArrayList<String>();
+		launch.add("ssh");
+		launch.add("-T");
+		launch.addAll(Arrays.asList(options));
+		launch.add("%h");
+		launch.add("/bin/sh");
+		return new PersistentShell(launch);
+	}
+
+	// a command running longer than this kills its session (0: no limit, a hung command then
+	// blocks its caller for good)
+	public PersistentShell setCommandTimeout(long millis) {
+		this.commandTimeoutMillis = millis;
+		return this;
+	}
+
+	// how many commands may run on one host at once, each login is one session
+	public PersistentShell setSessionsPerHost(int sessions) {
+		this.sessionsPerHost = sessions < 1 ? 1 : sessions;
+		return this;
+	}
+
+	public String[] shellcmd(String host, String cmd, String tag) {
+		return shellcmd(host, null, cmd, tag);
+	}
+
+	public String[] shellcmd(String host, Map<String, String> env, String cmd, String tag) {
+		final ArrayList<String> output = new ArrayList<String>();
+		run(host, env, cmd, tag, new FindOutputReader.LineHandler() {
+			public void line(String line) {
+				output.add(line);
+			}
+		});
+		return output.toArray(new String[output.size()]);
+	}
+
+	// the output lines go to handler as the host sends them
+	public long shellcmd(String host, String cmd, String tag, FindOutputReader.LineHandler handler) {
+		return run(host, null, cmd, tag, handler);
+	}
+
+	private long run(String host, Map<String, String> env, String cmd, String tag, FindOutputReader.LineHandler handler) {
+		Map<String, String> wanted = env == null ? BASE_ENV : env;
+		HostSessions pool;
+		Session session;
+		do {
+			pool = hostSessions(host);
+			session = borrow(host, pool, wanted);
+		} while (session == null);
+		boolean ok = false;
+		try {
+			if (!wanted.equals(session.env)) {
+				session.stdin.write(exports(session.env, wanted));
+				session.env = new HashMap<String, String>(wanted);
+			}
+			String sentinel = SENTINEL + (++session.serial);
+			session.stdin.write("(" + " " + cmd + "\n" + ") < /dev/null 2>&1" + "\n" + "echo \"" + sentinel + "\"" + "\n");
+			session.stdin.flush();
+			long lines = read(session, sentinel, handler);
+			synchronized (this) {
+				commands++;
+			}
+			ok = true;
+			return lines;
+		} catch (IOException e) {
+			throw new RuntimeException("shellcmd " + tag + " on " + host + " failed: " + e.getMessage(), e);
+		} finally {
+			giveBack(pool, session, ok);
+		}
+	}
+
+	private long read(final Session session, String sentinel, FindOutputReader.LineHandler handler) throws IOException {
+		ScheduledFuture<?> alarm = null;
+		if (commandTimeoutMillis > 0) {
+			alarm = timer.schedule(new Runnable() {
+				public void run() {
+					session.timedOut = true;
+					kill(session);
+				}
+			}, commandTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		try {
+			long lines = 0;
+			String line;
+			while ((line = session.stdout.readLine()) != null) {
+				if (line.endsWith(sentinel)) {
+					if (session.timedOut) {
+						// the shell echoed it as the killed command went away
+						break;
+					}
+					// output without a final newline ends up in front of the sentinel
+					if (line.length() > sentinel.length()) {
+						handler.line(line.substring(0, line.length() - sentinel.length()));
+						lines++;
+					}
+					return lines;
+				}
+				handler.line(line);
+				lines++;
+			}
+			if (session.timedOut) {
+				throw new IOException("timed out after " + commandTimeoutMillis + " ms");
+			}
+			throw new IOException(session.process.isAlive() ? "session closed" : "session ended with exit code " + session.process.exitValue());
+		} finally {
+			if (alarm != null) {
+				alarm.cancel(false);
+			}
+		}
+	}
+
+	// export lines that turn the current context into the wanted one
+	static String exports(Map<String, String> current, Map<String, String> wanted) {
+		StringBuilder cmd = new StringBuilder();
+		for (String name : current.keySet()) {
+			if (!wanted.containsKey(name)) {
+				cmd.append("unset ").append(name).append("\n");
+			}
+		}
+		for (Map.Entry<String, String> var : wanted.entrySet()) {
+			if (!var.getValue().equals(current.get(var.getKey()))) {
+				cmd.append(var.getKey()).append("='").append(var.getValue().replace("'", "'\\''")).append("'").append("\n");
+				cmd.append("export ").append(var.getKey()).append("\n");
+			}
+		}
+		return cmd.toString();
+	}
+
+	private HostSessions hostSessions(String host) {
+		HostSessions pool = hosts.get(host);
+		if (pool == null) {
+			hosts.putIfAbsent(host, new HostSessions());
+			pool = hosts.get(host);
+		}
+		return pool;
+	}
+
+	// an idle session of host, the one already in the wanted context if there is one, or a new
+	// one while the host has fewer than sessionsPerHost; else wait for one to come back. null
+	// when close(host) closed the pool meanwhile
+	private Session borrow(String host, HostSessions pool, Map<String, String> wanted) {
+		synchronized (pool) {
+			while (true) {
+				if (pool.closed) {
+					return null;
+				}
+				Session fallback = null;
+				Iterator<Session> iter = pool.idle.iterator();
+				while (iter.hasNext()) {
+					Session session = iter.next();
+					if (!session.process.isAlive()) {
+						iter.remove();
+						pool.open--;
+					} else if (session.env.equals(wanted)) {
+						iter.remove();
+						return session;
+					} else if (fallback == null) {
+						fallback = session;
+					}
+				}
+				if (fallback != null) {
+					pool.idle.remove(fallback);
+					return fallback;
+				}
+				if (pool.open < sessionsPerHost) {
+					pool.open++;
+					break;
+				}
+				try {
+					pool.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("interrupted waiting for a shell on " + host);
+				}
+			}
+		}
+		// the login is the slow part, other commands of the host go on meanwhile
+		try {
+			Session session = new Session(open(host));
+			try {
+				session.stdin.write("echo \"" + SENTINEL + session.serial + "\"\n");
+				session.stdin.flush();
+				read(session, SENTINEL + session.serial, new FindOutputReader.LineHandler() {
+					public void line(String line) {
+						// login banner
+					}
+				});
+			} catch (IOException e) {
+				kill(session);
+				throw new RuntimeException("cannot open a shell on " + host + ": " + e.getMessage(), e);
+			}
+			synchronized (this) {
+				opened++;
+			}
+			return session;
+		} catch (RuntimeException e) {
+			synchronized (pool) {
+				pool.open--;
+				pool.notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	// a session that failed, timed out or whose host was closed is not reused
+	private void giveBack(HostSessions pool, Session session, boolean ok) {
+		synchronized (pool) {
+			if (ok && !session.timedOut && !pool.closed && session.process.isAlive()) {
+				pool.idle.addFirst(session);
+			} else {
+				pool.open--;
+				if (ok && !session.timedOut) {
+					exit(session);
+				} else {
+					kill(session);
+				}
+			}
+			pool.notifyAll();
+		}
+	}
+
+	protected Process open(String host) {
+		List<String> command = new ArrayList<String>();
+		for (int i = 0; i < launch.size(); i++) {
+			command.add(launch.get(i).replace("%h", host));
+		}
+		try {
+			return new ProcessBuilder(command).redirectErrorStream(true).start();
+		} catch (IOException e) {
+			throw new RuntimeException("cannot open a shell on " + host + ": " + e.getMessage(), e);
+		}
+	}
+
+	// the command still running keeps the output pipe open after its shell died, so it goes too;
+	// the shell goes first, it would echo the sentinel once the command is gone
+	private static void kill(Session session) {
+		Object[] children = session.process.descendants().toArray();
+		session.process.destroyForcibly();
+		for (int i = 0; i < children.length; i++) {
+			((ProcessHandle) children[i]).destroyForcibly();
+		}
+	}
+
+	private static void exit(Session session) {
+		try {
+			session.stdin.write("exit\n");
+			session.stdin.flush();
+		} catch (IOException e) {
+		}
+		session.process.destroy();
+	}
+
+	// sessions of host running a command are closed when it returns
+	public void close(String host) {
+		HostSessions pool = hosts.remove(host);
+		if (pool != null) {
+			synchronized (pool) {
+				pool.closed = true;
+				for (Session session : pool.idle) {
+					exit(session);
+					pool.open--;
+				}
+				pool.idle.clear();
+				pool.notifyAll();
+			}
+		}
+	}
+
+	public void close() {
+		for (String host : new ArrayList<String>(hosts.keySet())) {
+			close(host);
+		}
+	}
+
+	// sessions opened so far, each one is a login saved for every later command on the host
+	public synchronized long getOpened() {
+		return opened;
+	}
+
+	public synchronized long getCommands() {
+		return commands;
+	}
+}
@@ -0,0 +1,292 @@
+package Common;
+import java.util.ArrayList;
+import java.util.regex.*;
+import java.util.*;
+
+// Matches ps lines against the processPatternList of every loaded module at once
+// (java<BDNA,>iqsrv for Sybase IQ, tnslsnr for Oracle, sapstart for SAP, ...). All patterns are
+// compiled into one Aho-Corasick automaton, so a line is read once, character by character,
+// whatever the number of modules, instead of running every module's regexes on every line.
+// A pattern names a process, as &_j4_findProcess and &UNIXps do: it must be the basename of the
+// executable, a "java" in an argument or a directory of the command line, or a javac, is no hit.
+// A pattern can carry an install directory regex (e.g. "(.*)bin/iqsrv|(.*)bin64/iqsrv"); it only
+// runs on the lines the automaton hit, and its first matching group is the install directory.
+// Without one, the install directory is the directory of the matching executable, without a
+// trailing bin/ or bin64/.
+// forHost() answers the process checks of all modules of unixModules() with one pass over the
+// host's ProcessTable capture, kept with the capture for the other scripts of the scan.
+public class ProcessPatternMatcher {
+
+	// processPatternList owners of unixModules()
+	public static final String SYBASE_IQ = "com_bdna_modules_app_Sybase_UNIX_Sybase_IQ";
+	public static final String ORACLE = "UNIXOracleFootprint";
+
+	private static final ProcessPatternMatcher unixModules = unixModules();
+
+	public static class Match {
+		private final String module;
+		private final String pattern;
+		private final String installDir;
+		private final String line;
+
+		Match(String module, String pattern, String installDir, String line) {
+			this.module = module;
+			this.pattern = pattern;
+			this.installDir = installDir;
+			this.line = line;
+		}
+
+		public String getModule() {
+			return module;
+		}
+
+		public String getPattern() {
+			return pattern;
+		}
+
+		public String getInstallDir() {
+			return installDir;
+		}
+
+		public String getLine() {
+			return line;
+		}
+	}
+
+	// characters from 128 up share one symbol, hits of patterns with such characters are rechecked
+	private static final int ALPHABET = 129;
+
+	private final ArrayList<String> modules = new ArrayList<String>();
+	private final ArrayList<String> patterns = new ArrayList<String>();
+	private final ArrayList<Pattern> dirRegexes = new ArrayList<Pattern>();
+
+	// the automaton, built on first use: next[row + symbol] is the row (state * ALPHABET) of the
+	// next state, stored as ~row when patterns end in it, so the scan loop neither multiplies nor
+	// looks at the outputs of a state without any; output[state] lists the patterns that end in a
+	// state (own and inherited over the failure links)
+	private int[] next;
+	private int[][] output;
+
+	// a matcher with the process patterns of the UNIX modules registered
+	public static ProcessPatternMatcher unixModules() {
+		//my $_exProcess = "(.*)bin/iqsrv|(.*)bin64/iqsrv";
+		//my $_exProcess2 = "iq.agent=(.*)/java/IQAgent\\d*.jar";
+		return new ProcessPatternMatcher()
+				.addPattern(SYBASE_IQ, "iqsrv", "(.*)bin/iqsrv|(.*)bin64/iqsrv")
+				.addPattern(SYBASE_IQ, "java", "iq.agent=(.*)/java/IQAgent\\d*.jar")
+				.addPattern(ORACLE, "tnslsnr", "(\\S*)/bin/tnslsnr");
+	}
+
+	// the matches of every module of unixModules() on host, by module, in ps order
+	public static Map<String, List<Match>> forHost(BDNAShell shell, String host) {
+		return ProcessTable.snapshot(shell, host).matches(unixModules);
+	}
+
+	// the matches of module on host, none when it has no running process
+	public static List<Match> forHost(BDNAShell shell, String host, String module) {
+		List<Match> matches = forHost(shell, host).get(module);
+		return matches == null ? Collections.<Match>emptyList() : matches;
+	}
+
+	// every entry of a "<BDNA,>" separated processPatternList
+	public synchronized ProcessPatternMatcher addModule(String module, String processPatternList) {
+		String[] list = processPatternList.split(BDNAResultWriter.SEPARATOR);
+		for (int i = 0; i < list.length; i++) {
+			if (list[i].length() > 0) {
+				addPattern(module, list[i], null);
+			}
+		}
+		return this;
+	}
+
+	public synchronized ProcessPatternMatcher addPattern(String module, String pattern, String dirRegex) {
+		modules.add(module);
+		patterns.add(pattern);
+		dirRegexes.add(dirRegex == null ? null : BDNAPatterns.compile(dirRegex));
+		next = null;
+		return this;
+	}
+
+	private static int symbol(char c) {
+		return c < 128 ? c : 128;
+	}
+
+	private synchronized void build() {
+		if (next != null) {
+			return;
+		}
+		// trie
+		ArrayList<int[]> gotoRows = new ArrayList<int[]>();
+		ArrayList<ArrayList<Integer>> ends = new ArrayList<ArrayList<Integer>>();
+		gotoRows.add(newRow());
+		ends.add(new ArrayList<Integer>());
+		for (int p = 0; p < patterns.size(); p++) {
+			String pattern = patterns.get(p);
+			int state = 0;
+			for (int c = 0; c < pattern.length(); c++) {
+				int s = symbol(pattern.charAt(c));
+				if (gotoRows.get(state)[s] < 0) {
+					gotoRows.get(state)[s] = gotoRows.size();
+					gotoRows.add(newRow());
+					ends.add(new ArrayList<Integer>());
+				}
+				state = gotoRows.get(state)[s];
+			}
+			ends.get(state).add(p);
+		}
+
+		// failure links breadth first, turning the trie into a full transition table
+		int states = gotoRows.size();
+		int[] fail = new int[states];
+		int[] table = new int[states * ALPHABET];
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		for (int s = 0; s < ALPHABET; s++) {
+			int child = gotoRows.get(0)[s];
+			if (child > 0) {
+				fail[child] = 0;
+				queue[tail++] = child;
+				table[s] = child;
+			} else {
+				table[s] = 0;
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			ends.get(state).addAll(ends.get(fail[state]));
+			for (int s = 0; s < ALPHABET; s++) {
+				int child = gotoRows.get(state)[s];
+				if (child > 0) {
+					fail[child] = table[fail[state] * ALPHABET + s];
+					queue[tail++] = child;
+					table[state * ALPHABET + s] = child;
+				} else {
+					table[state * ALPHABET + s] = table[fail[state] * ALPHABET + s];
+				}
+			}
+		}
+
+		int[][] out = new int[states][];
+		for (int state = 0; state < states; state++) {
+			ArrayList<Integer> list = ends.get(state);
+			out[state] = new int[list.size()];
+			for (int i = 0; i < list.size(); i++) {
+				out[state][i] = list.get(i);
+			}
+		}
+		for (int t = 0; t < table.length; t++) {
+			table[t] = out[table[t]].length > 0 ? ~(table[t] * ALPHABET) : table[t] * ALPHABET;
+		}
+		output = out;
+		next = table;
+	}
+
+	private static int[] newRow() {
+		int[] row = new int[ALPHABET];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	// the modules line belongs to, one Match per module; only the basename of the executable
+	// (the first word of the command line) is read
+	public List<Match> match(String line) {
+		build();
+		int[] table = next;
+		int[][] out = output;
+		List<Match> matches = null;
+		int end = line.indexOf(' ');
+		if (end < 0) {
+			end = line.length();
+		}
+		int basename = line.lastIndexOf('/', end - 1) + 1;
+		int row = 0;
+		for (int c = basename; c < end; c++) {
+			row = table[row + symbol(line.charAt(c))];
+			if (row >= 0) {
+				continue;
+			}
+			row = ~row;
+			int[] hits = out[row / ALPHABET];
+			for (int h = 0; h < hits.length; h++) {
+				int p = hits[h];
+				String pattern = patterns.get(p);
+				// only a hit that is the whole basename names the process
+				if (c + 1 != end || c + 1 - pattern.length() != basename || !line.regionMatches(basename, pattern, 0, pattern.length())) {
+					continue;
+				}
+				matches = report(matches, p, line, basename);
+			}
+		}
+		return matches == null ? Collections.<Match>emptyList() : matches;
+	}
+
+	private List<Match> report(List<Match> matches, int p, String line, int start) {
+		String module = modules.get(p);
+		if (matches != null) {
+			for (int i = 0; i < matches.size(); i++) {
+				if (matches.get(i).module.equals(module)) {
+					return matches;
+				}
+			}
+		}
+		String installDir;
+		Pattern dirRegex = dirRegexes.get(p);
+		if (dirRegex != null) {
+			Matcher matcher = dirRegex.matcher(line);
+			if (!matcher.find()) {
+				return matches;
+			}
+			installDir = "";
+			for (int g = 1; g <= matcher.groupCount(); g++) {
+				if (matcher.group(g) != null) {
+					installDir = matcher.group(g);
+					break;
+				}
+			}
+		} else {
+			installDir = executableDir(line, start);
+		}
+		if (matches == null) {
+			matches = new ArrayList<Match>(2);
+		}
+		matches.add(new Match(module, patterns.get(p), installDir, line));
+		return matches;
+	}
+
+	// directory of the path token holding the hit at start, "" when it is not a path
+	static String executableDir(String line, int start) {
+		int from = line.lastIndexOf(' ', start) + 1;
+		int slash = line.lastIndexOf('/', start);
+		if (slash < from) {
+			return "";
+		}
+		String dir = line.substring(from, slash + 1);
+		if (dir.endsWith("/bin/")) {
+			return dir.substring(0, dir.length() - "bin/".length());
+		}
+		if (dir.endsWith("/bin64/")) {
+			return dir.substring(0, dir.length() - "bin64/".length());
+		}
+		return dir;
+	}
+
+	// all matches of a process table, by module, in ps order
+	public Map<String, List<Match>> scan(ProcessTable table) {
+		long start = BDNAMetrics.start();
+		Map<String, List<Match>> byModule = new LinkedHashMap<String, List<Match>>();
+		List<ProcessTable.Proc> processes = table.getProcesses();
+		for (int i = 0; i < processes.size(); i++) {
+			List<Match> matches = match(processes.get(i).getArgs());
+			for (int m = 0; m < matches.size(); m++) {
+				List<Match> list = byModule.get(matches.get(m).module);
+				if (list == null) {
+					list = new ArrayList<Match>();
+					byModule.put(matches.get(m).module, list);
+				}
+				list.add(matches.get(m));
+			}
+		}
+		BDNAMetrics.parse("process_patterns", start, processes.size());
+		return byModule;
+	}
+}
@@ -0,0 +1,238 @@
+package Common;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.*;
+
+// One ps capture of a host, indexed for the running-process checks of all modules, instead of a
+// ps per check (&_j4_findProcess($host, ["iqsrv"]), &_j4_findProcess($host, ["java"]),
+// &UNIXps($host, "tnslsnr"), ...).
+//   - byBasename("iqsrv") is a hash lookup on the basename of the executable,
+//   - containing("iq.agent=") scans the argument lines once per substring and keeps the answer,
+//   - matches(matcher) runs the process patterns of all modules once (ProcessPatternMatcher).
+// snapshot(shell, host) shares one capture per host among all checks of a scan. Expired captures
+// and their host locks are swept at most once per SNAPSHOT_MAX_AGE_MILLIS, so a long-lived runner
+// does not keep every host it has seen; invalidate(host) drops a host at once.
+public class ProcessTable {
+
+	// UNIX95 makes HP-UX accept -o, the other UNIXes ignore it
+	public static final String PS_COMMAND = "UNIX95=1 ps -eo pid,ppid,user,args 2> /dev/null";
+
+	// a capture older than this is taken again
+	public static final long SNAPSHOT_MAX_AGE_MILLIS = 60 * 1000L;
+
+	public static class Proc {
+		private final String pid;
+		private final String ppid;
+		private final String user;
+		private final String args;
+		private final String executable;
+		private final String basename;
+
+		Proc(String pid, String ppid, String user, String args) {
+			this.pid = pid;
+			this.ppid = ppid;
+			this.user = user;
+			this.args = args;
+			int end = args.indexOf(' ');
+			this.executable = end < 0 ? args : args.substring(0, end);
+			this.basename = executable.substring(executable.lastIndexOf('/') + 1);
+		}
+
+		public String getPid() {
+			return pid;
+		}
+
+		public String getPpid() {
+			return ppid;
+		}
+
+		public String getUser() {
+			return user;
+		}
+
+		// the full command line
+		public String getArgs() {
+			return args;
+		}
+
+		public String getExecutable() {
+			return executable;
+		}
+
+		public String getBasename() {
+			return basename;
+		}
+	}
+
+	private static class Snapshot {
+		final ProcessTable table;
+		final long taken;
+
+		Snapshot(ProcessTable table, long taken) {
+			this.table = table;
+			this.taken = taken;
+		}
+	}
+
+	private static final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+	// one ps at a time per host, the ps of other hosts do not wait for it
+	private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+	private static volatile long swept = System.currentTimeMillis();
+
+	private final ArrayList<Proc> processes = new ArrayList<Proc>();
+	private final HashMap<String, List<Proc>> byBasename = new HashMap<String, List<Proc>>();
+	private final HashMap<String, List<Proc>> bySubstring = new HashMap<String, List<Proc>>();
+	// the scan of the last matcher asked, shared by the modules' checks of this capture
+	private ProcessPatternMatcher matched;
+	private Map<String, List<ProcessPatternMatcher.Match>> matches;
+
+	// the process table of host, shared by all callers until it is SNAPSHOT_MAX_AGE_MILLIS old
+	public static ProcessTable snapshot(BDNAShell shell, String host) {
+		Snapshot snapshot = snapshots.get(host);
+		long now = System.currentTimeMillis();
+		if (snapshot == null || now - snapshot.taken > SNAPSHOT_MAX_AGE_MILLIS) {
+			sweep(now);
+			Object lock = locks.get(host);
+			if (lock == null) {
+				locks.putIfAbsent(host, new Object());
+				lock = locks.get(host);
+			}
+			synchronized (lock) {
+				snapshot = snapshots.get(host);
+				if (snapshot == null || now - snapshot.taken > SNAPSHOT_MAX_AGE_MILLIS) {
+					snapshot = new Snapshot(parse(shell.shellcmd(host, PS_COMMAND, "process_table")), System.currentTimeMillis());
+					snapshots.put(host, snapshot);
+				}
+			}
+		}
+		return snapshot.table;
+	}
+
+	// forget the capture of host, e.g. after starting or stopping processes there, or when the
+	// host is done
+	public static void invalidate(String host) {
+		snapshots.remove(host);
+		locks.remove(host);
+	}
+
+	// a lock dropped while a ps runs under it only costs a second ps of that host
+	private static void sweep(long now) {
+		if (now - swept < SNAPSHOT_MAX_AGE_MILLIS) {
+			return;
+		}
+		swept = now;
+		Iterator<Map.Entry<String, Snapshot>> entries = snapshots.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<String, Snapshot> entry = entries.next();
+			if (now - entry.getValue().taken > SNAPSHOT_MAX_AGE_MILLIS) {
+				entries.remove();
+			}
+		}
+		// also the locks of hosts whose ps failed
+		locks.keySet().retainAll(snapshots.keySet());
+	}
+
+	// parse "PID PPID USER COMMAND" lines, the header line is skipped
+	public static ProcessTable parse(String[] output) {
+		long start = BDNAMetrics.start();
+		ProcessTable table = new ProcessTable();
+		for (int i = 0; i < output.length; i++) {
+			String line = FindOutputReader.chomp(output[i]);
+			int[] bounds = new int[6];
+			int pos = 0;
+			for (int f = 0; f < 3; f++) {
+				while (pos < line.length() && line.charAt(pos) == ' ') {
+					pos++;
+				}
+				bounds[2 * f] = pos;
+				while (pos < line.length() && line.charAt(pos) != ' ') {
+					pos++;
+				}
+				bounds[2 * f + 1] = pos;
+			}
+			while (pos < line.length() && line.charAt(pos) == ' ') {
+				pos++;
+			}
+			if (pos >= line.length() || !isNumber(line, bounds[0], bounds[1])) {
+				continue;
+			}
+			table.add(new Proc(line.substring(bounds[0], bounds[1]), line.substring(bounds[2], bounds[3]), line.substring(bounds[4], bounds[5]), line.substring(pos)));
+		}
+		BDNAMetrics.parse("process_table", start, output.length);
+		return table;
+	}
+
+	private static boolean isNumber(String s, int from, int to) {
+		if (from == to) {
+			return false;
+		}
+		for (int i = from; i < to; i++) {
+			if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void add(Proc proc) {
+		processes.add(proc);
+		List<Proc> list = byBasename.get(proc.basename);
+		if (list == null) {
+			list = new ArrayList<Proc>(1);
+			byBasename.put(proc.basename, list);
+		}
+		list.add(proc);
+	}
+
+	public int size() {
+		return processes.size();
+	}
+
+	public List<Proc> getProcesses() {
+		return Collections.unmodifiableList(processes);
+	}
+
+	// processes whose executable is named name
+	public List<Proc> byBasename(String name) {
+		List<Proc> list = byBasename.get(name);
+		return list == null ? Collections.<Proc>emptyList() : Collections.unmodifiableList(list);
+	}
+
+	// processes whose command line contains s
+	public synchronized List<Proc> containing(String s) {
+		List<Proc> list = bySubstring.get(s);
+		if (list == null) {
+			list = new ArrayList<Proc>();
+			for (int i = 0; i < processes.size(); i++) {
+				if (processes.get(i).args.indexOf(s) >= 0) {
+					list.add(processes.get(i));
+				}
+			}
+			list = Collections.unmodifiableList(list);
+			bySubstring.put(s, list);
+		}
+		return list;
+	}
+
+	// the matches of matcher on this capture, by module, in ps order
+	public synchronized Map<String, List<ProcessPatternMatcher.Match>> matches(ProcessPatternMatcher matcher) {
+		if (matched != matcher) {
+			matches = Collections.unmodifiableMap(matcher.scan(this));
+			matched = matcher;
+		}
+		return matches;
+	}
+
+	// the command lines of the processes named by one of names, the answer of
+	// &_j4_findProcess($host, [names]) and &UNIXps($host, name)
+	public String[] findProcess(String... names) {
+		ArrayList<String> found = new ArrayList<String>();
+		for (int n = 0; n < names.length; n++) {
+			List<Proc> list = byBasename(names[n]);
+			for (int i = 0; i < list.size(); i++) {
+				found.add(list.get(i).args);
+			}
+		}
+		return found.toArray(new String[found.size()]);
+	}
+}
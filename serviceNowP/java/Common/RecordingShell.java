@@ -0,0 +1,76 @@
+package Common;
+import java.io.IOException;
+import java.util.*;
+
+// Passes &shellcmd calls on to a real shell and writes each command, its output and how long
+// the host took into a ShellTranscript, for ReplayShell to serve back later. A transcript that
+// cannot be written does not stop the scan, the failed records are only counted.
+// record() keeps a RemoteShell a RemoteShell, so the scripts run the same commands they run
+// against the real shell (OracleHomeProbe exports its context instead of a preamble).
+public class RecordingShell implements BDNAShell {
+
+	final BDNAShell shell;
+	private final ShellTranscript transcript;
+	private long recorded = 0, failures = 0;
+
+	public RecordingShell(BDNAShell shell, ShellTranscript transcript) {
+		this.shell = shell;
+		this.transcript = transcript;
+	}
+
+	// a recorder of shell that is a RemoteShell when shell is one
+	public static RecordingShell record(BDNAShell shell, ShellTranscript transcript) {
+		if (shell instanceof RemoteShell) {
+			return new RecordingRemoteShell((RemoteShell) shell, transcript);
+		}
+		return new RecordingShell(shell, transcript);
+	}
+
+	public String[] shellcmd(String host, String cmd, String tag) {
+		long start = System.nanoTime();
+		return recorded(host, cmd, tag, shell.shellcmd(host, cmd, tag), start);
+	}
+
+	String[] recorded(String host, String cmd, String tag, String[] output, long start) {
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		try {
+			transcript.record(host, cmd, tag, output, elapsedMillis);
+			synchronized (this) {
+				recorded++;
+			}
+		} catch (IOException e) {
+			synchronized (this) {
+				failures++;
+			}
+		}
+		return output;
+	}
+
+	// the command of a context is recorded as it is sent, the exported context is not part of it
+	private static class RecordingRemoteShell extends RecordingShell implements RemoteShell {
+		RecordingRemoteShell(RemoteShell shell, ShellTranscript transcript) {
+			super(shell, transcript);
+		}
+
+		public String[] shellcmd(String host, Map<String, String> env, String cmd, String tag) {
+			long start = System.nanoTime();
+			return recorded(host, cmd, tag, ((RemoteShell) shell).shellcmd(host, env, cmd, tag), start);
+		}
+
+		public void close(String host) {
+			((RemoteShell) shell).close(host);
+		}
+
+		public void close() {
+			((RemoteShell) shell).close();
+		}
+	}
+
+	public synchronized long getRecorded() {
+		return recorded;
+	}
+
+	public synchronized long getFailures() {
+		return failures;
+	}
+}
@@ -0,0 +1,21 @@
+package Common;
+import java.util.*;
+
+// A BDNAShell that keeps state between commands on a host: one open session per host, and an
+// environment context (ORACLE_HOME, LD_LIBRARY_PATH, ...) that is exported once and then reused
+// by every command run with the same context, instead of every command carrying its own
+//   export ORACLE_HOME / ORACLE_HOME='...' / LD_LIBRARY_PATH='...'
+// preamble and paying a login for it.
+public interface RemoteShell extends BDNAShell {
+
+	// run cmd on host with env exported in the session; the variables are only re-exported when
+	// env differs from the context of the previous command on that host
+	String[] shellcmd(String host, Map<String, String> env, String cmd, String tag);
+
+	// close the session to host, the next command opens a new one
+	void close(String host);
+
+	// close all sessions
+	void close();
+
+}
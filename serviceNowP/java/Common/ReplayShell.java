@@ -0,0 +1,88 @@
+package Common;
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.*;
+
+// Answers &shellcmd calls from a ShellTranscript instead of a host. A command asked again gets
+// the answers in the order they were recorded (a refresh after a full find, a second ps, ...);
+// a command that was not recorded as such gets the recorded answers of the same tag on the
+// host (a temp file name or an export preamble that differs). Each answer takes the time the
+// host took, scaled by latencyFactor: 1 for a realistic replay, 0.1 to run a scan ten times
+// faster, 0 for none.
+// It is a RemoteShell like the shell of a real scan, so the scripts send the commands that were
+// recorded through RecordingShell.record(); the context of a command is not replayed, only the
+// command itself, and there are no sessions to close.
+public class ReplayShell implements RemoteShell {
+
+	private final ShellTranscript transcript;
+	private final double latencyFactor;
+	private final ConcurrentHashMap<String, AtomicInteger> cursors = new ConcurrentHashMap<String, AtomicInteger>();
+	private final AtomicLong calls = new AtomicLong(), misses = new AtomicLong(), latencyMillis = new AtomicLong();
+
+	public ReplayShell(ShellTranscript transcript, double latencyFactor) {
+		this.transcript = transcript;
+		this.latencyFactor = latencyFactor;
+	}
+
+	public String[] shellcmd(String host, String cmd, String tag) {
+		calls.incrementAndGet();
+		String recordedCmd = transcript.count(host, cmd, tag) > 0 ? cmd : null;
+		String key = host + '\0' + tag + '\0' + (recordedCmd == null ? "" : recordedCmd);
+		AtomicInteger cursor = cursors.get(key);
+		if (cursor == null) {
+			cursors.putIfAbsent(key, new AtomicInteger());
+			cursor = cursors.get(key);
+		}
+		ShellTranscript.Entry entry;
+		try {
+			entry = transcript.get(host, recordedCmd, tag, cursor.getAndIncrement());
+		} catch (IOException e) {
+			throw new RuntimeException("cannot replay " + tag + " on " + host + ": " + e.getMessage(), e);
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return new String[0];
+		}
+		long sleep = Math.round(entry.getElapsedMillis() * latencyFactor);
+		if (sleep > 0) {
+			latencyMillis.addAndGet(sleep);
+			try {
+				Thread.sleep(sleep);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("shellcmd " + tag + " on " + host + " interrupted");
+			}
+		}
+		return entry.getOutput();
+	}
+
+	public String[] shellcmd(String host, Map<String, String> env, String cmd, String tag) {
+		return shellcmd(host, cmd, tag);
+	}
+
+	public void close(String host) {
+	}
+
+	public void close() {
+	}
+
+	// start every host over from its first recorded answers, for the next replayed scan
+	public void rewind() {
+		cursors.clear();
+	}
+
+	public long getCalls() {
+		return calls.get();
+	}
+
+	// calls with no recorded answer, they got no output
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// total latency added
+	public long getLatencyMillis() {
+		return latencyMillis.get();
+	}
+}
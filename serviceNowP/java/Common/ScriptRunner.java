@@ -0,0 +1,225 @@
+package Common;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.*;
+
+// Long-lived, in-process runner of the discovery scripts. Starting one JVM per script main()
+// pays the JVM start, the class loading and an interpreted, cold run of the parsers on every
+// host; here a script class is loaded and instantiated once, every invocation after the first
+// runs on the warmed JIT, and invocations of any scripts overlap on the runner's threads.
+// Startup cost (JVM uptime when the runner came up, load time of each script) and the
+// per-invocation cost (first and warm run times, time waiting for a thread) are kept as
+// metrics, see report(); every invocation is also recorded in BDNAMetrics (latency histogram,
+// JFR event) and a stage's shell is metered there by command tag.
+public class ScriptRunner {
+
+	public static class Metrics {
+		private final String script;
+		private final long loadNanos;
+		private long invocations, errors;
+		private long firstNanos = -1, warmNanos, maxNanos, waitNanos;
+
+		Metrics(String script, long loadNanos) {
+			this.script = script;
+			this.loadNanos = loadNanos;
+		}
+
+		synchronized void record(long wait, long elapsed, boolean failed) {
+			if (firstNanos < 0) {
+				firstNanos = elapsed;
+			} else {
+				warmNanos += elapsed;
+			}
+			invocations++;
+			if (failed) {
+				errors++;
+			}
+			maxNanos = Math.max(maxNanos, elapsed);
+			waitNanos += wait;
+		}
+
+		public String getScript() {
+			return script;
+		}
+
+		// class loading and instantiation, paid once
+		public long getLoadNanos() {
+			return loadNanos;
+		}
+
+		public synchronized long getInvocations() {
+			return invocations;
+		}
+
+		public synchronized long getErrors() {
+			return errors;
+		}
+
+		// the cold run, -1 before the first invocation
+		public synchronized long getFirstNanos() {
+			return firstNanos;
+		}
+
+		// average of the runs after the first, 0 before the second invocation
+		public synchronized long getWarmAverageNanos() {
+			return invocations < 2 ? 0 : warmNanos / (invocations - 1);
+		}
+
+		public synchronized long getMaxNanos() {
+			return maxNanos;
+		}
+
+		// average time an invocation waited for a runner thread
+		public synchronized long getWaitAverageNanos() {
+			return invocations == 0 ? 0 : waitNanos / invocations;
+		}
+	}
+
+	private final ExecutorService pool;
+	private final long startupMillis;
+	private final ConcurrentHashMap<String, BDNAScript> scripts = new ConcurrentHashMap<String, BDNAScript>();
+	private final ConcurrentHashMap<String, Metrics> metrics = new ConcurrentHashMap<String, Metrics>();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger peak = new AtomicInteger();
+
+	public ScriptRunner(int parallelism) {
+		pool = Executors.newFixedThreadPool(parallelism < 1 ? 1 : parallelism, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ScriptRunner-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+	}
+
+	// the script instance of className, loaded on first use and kept for the life of the runner
+	public BDNAScript load(String className) throws Exception {
+		BDNAScript script = scripts.get(className);
+		if (script != null) {
+			return script;
+		}
+		synchronized (scripts) {
+			script = scripts.get(className);
+			if (script == null) {
+				long start = System.nanoTime();
+				Class<?> type = Class.forName(className);
+				if (!BDNAScript.class.isAssignableFrom(type)) {
+					throw new IllegalArgumentException(className + " is not a BDNAScript");
+				}
+				script = (BDNAScript) type.getDeclaredConstructor().newInstance();
+				metrics.put(className, new Metrics(className, System.nanoTime() - start));
+				scripts.put(className, script);
+			}
+		}
+		return script;
+	}
+
+	// run className on one of the runner's threads, other invocations overlap with it
+	public Future<Map<String, String>> submit(final String className, final Map<String, String> params, final Map<String, Object> connectionInfo) throws Exception {
+		final BDNAScript script = load(className);
+		final Metrics scriptMetrics = metrics.get(className);
+		final long submitted = System.nanoTime();
+		return pool.submit(new Callable<Map<String, String>>() {
+			public Map<String, String> call() throws Exception {
+				long start = System.nanoTime();
+				long metered = BDNAMetrics.start();
+				int now = running.incrementAndGet();
+				for (int max = peak.get(); now > max && !peak.compareAndSet(max, now); max = peak.get());
+				boolean failed = true;
+				try {
+					Map<String, String> results = script.run(params, connectionInfo);
+					failed = false;
+					return results;
+				} finally {
+					running.decrementAndGet();
+					scriptMetrics.record(start - submitted, System.nanoTime() - start, failed);
+					BDNAMetrics.script(className, (String) connectionInfo.get(BDNAScript.HOST_OBJECT), metered, failed);
+				}
+			}
+		});
+	}
+
+	// run className and wait for its %BDNA_Results; a caller interrupted while waiting (the
+	// scheduler's host timeout) cancels the invocation, so it does not keep a runner thread
+	public Map<String, String> run(String className, Map<String, String> params, Map<String, Object> connectionInfo) throws Exception {
+		Future<Map<String, String>> future = submit(className, params, connectionInfo);
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// a DiscoveryScheduler stage running className with the host context as $BDNA_Params, its
+	// results go back into the context for the next stage
+	public DiscoveryScheduler.HostStage stage(String className) {
+		return stage(className, Collections.<String, String>emptyMap());
+	}
+
+	// the same with params (signatureFiles, globalModuleConfig, ...) under the host context
+	public DiscoveryScheduler.HostStage stage(final String className, final Map<String, String> params) {
+		return new DiscoveryScheduler.HostStage() {
+			public void run(String host, BDNAShell shell, Map<String, String> context) throws Exception {
+				Map<String, Object> connectionInfo = new HashMap<String, Object>();
+				connectionInfo.put(BDNAScript.HOST_OBJECT, host);
+				connectionInfo.put(BDNAScript.SHELL, BDNAMetrics.meter(shell));
+				Map<String, String> scriptParams = new HashMap<String, String>(params);
+				scriptParams.putAll(context);
+				Map<String, String> results = ScriptRunner.this.run(className, scriptParams, connectionInfo);
+				if (results != null) {
+					context.putAll(results);
+				}
+			}
+		};
+	}
+
+	// JVM uptime when the runner came up: the start cost each script paid when it was its own JVM
+	public long getStartupMillis() {
+		return startupMillis;
+	}
+
+	public Metrics getMetrics(String className) {
+		return metrics.get(className);
+	}
+
+	public List<Metrics> getMetrics() {
+		ArrayList<Metrics> list = new ArrayList<Metrics>(metrics.values());
+		Collections.sort(list, new Comparator<Metrics>() {
+			public int compare(Metrics a, Metrics b) {
+				return a.script.compareTo(b.script);
+			}
+		});
+		return list;
+	}
+
+	// most invocations running at once
+	public int getPeakConcurrency() {
+		return peak.get();
+	}
+
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("startup %d ms, peak concurrency %d%n", startupMillis, peak.get()));
+		report.append(String.format("%-60s %8s %6s %10s %10s %10s %10s %10s%n", "script", "runs", "errors", "load ms", "first ms", "warm ms", "max ms", "wait ms"));
+		for (Metrics m : getMetrics()) {
+			report.append(String.format("%-60s %8d %6d %10.3f %10.3f %10.3f %10.3f %10.3f%n", m.getScript(), m.getInvocations(), m.getErrors(),
+					m.getLoadNanos() / 1e6, Math.max(m.getFirstNanos(), 0) / 1e6, m.getWarmAverageNanos() / 1e6, m.getMaxNanos() / 1e6, m.getWaitAverageNanos() / 1e6));
+		}
+		return report.toString();
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+}
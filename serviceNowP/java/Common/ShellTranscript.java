@@ -0,0 +1,312 @@
+package Common;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.*;
+import java.util.*;
+
+// Recorded &shellcmd calls of many hosts in one local file: host, tag, command, how long the
+// host took to answer and the output lines. RecordingShell writes it during a real scan and
+// ReplayShell serves it back, so a scan of the recorded hosts can be profiled and load-tested
+// without a network.
+//   - every call is one record, appended as it happens; the output is deflated per record, ps,
+//     find and lsnrctl output shrink to a fraction of their text,
+//   - close() writes an index (host, tag, command -> record offsets, in recording order, and
+//     the hosts in the order first seen) after the records, so a replay reads only the records
+//     it is asked for,
+//   - a file whose recording never reached close() has no index, it is rebuilt by walking the
+//     records and a torn last record is dropped.
+public class ShellTranscript implements Closeable {
+
+	public static class Entry {
+		private final String host;
+		private final String tag;
+		private final String cmd;
+		private final long elapsedMillis;
+		private final String[] output;
+
+		Entry(String host, String tag, String cmd, long elapsedMillis, String[] output) {
+			this.host = host;
+			this.tag = tag;
+			this.cmd = cmd;
+			this.elapsedMillis = elapsedMillis;
+			this.output = output;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		public String getCmd() {
+			return cmd;
+		}
+
+		// how long the host took to answer when it was recorded
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public String[] getOutput() {
+			return output.clone();
+		}
+	}
+
+	private static final byte[] MAGIC = "BDNATRN1".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] INDEX_MAGIC = "BDNATRX1".getBytes(StandardCharsets.US_ASCII);
+	private static final char SEP = '\0';
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final boolean writable;
+	private long end;
+	private int records = 0;
+	// host SEP tag SEP cmd -> offsets, and host SEP tag -> offsets of all its commands
+	private final HashMap<String, long[]> byCommand = new HashMap<String, long[]>();
+	private final HashMap<String, long[]> byTag = new HashMap<String, long[]>();
+	private final LinkedHashSet<String> hosts = new LinkedHashSet<String>();
+
+	private ShellTranscript(File file, boolean writable) throws IOException {
+		this.file = file;
+		this.writable = writable;
+		this.raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		this.channel = raf.getChannel();
+		try {
+			if (writable && channel.size() == 0) {
+				channel.write(ByteBuffer.wrap(MAGIC), 0);
+				end = MAGIC.length;
+			} else {
+				load();
+			}
+			if (writable) {
+				// records go where the index was, close() writes it again
+				channel.truncate(end);
+			}
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	// a transcript to replay
+	public static ShellTranscript open(File file) throws IOException {
+		return new ShellTranscript(file, false);
+	}
+
+	// a transcript to record into, new or continuing an earlier recording
+	public static ShellTranscript append(File file) throws IOException {
+		return new ShellTranscript(file, true);
+	}
+
+	private void load() throws IOException {
+		byte[] magic = read(0, MAGIC.length);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException(file + " is not a shell transcript");
+		}
+		long size = channel.size();
+		if (size >= MAGIC.length + 8 + INDEX_MAGIC.length && Arrays.equals(read(size - INDEX_MAGIC.length, INDEX_MAGIC.length), INDEX_MAGIC)) {
+			long indexOffset = ByteBuffer.wrap(read(size - INDEX_MAGIC.length - 8, 8)).getLong();
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(indexOffset, (int) (size - INDEX_MAGIC.length - 8 - indexOffset))));
+			int keys = in.readInt();
+			for (int k = 0; k < keys; k++) {
+				String key = readString(in);
+				long[] offsets = new long[in.readInt() + 1];
+				offsets[0] = offsets.length - 1;
+				for (int i = 1; i < offsets.length; i++) {
+					offsets[i] = in.readLong();
+				}
+				byCommand.put(key, offsets);
+				records += offsets.length - 1;
+			}
+			int hostCount = in.readInt();
+			for (int h = 0; h < hostCount; h++) {
+				hosts.add(readString(in));
+			}
+			end = indexOffset;
+			for (Map.Entry<String, long[]> entry : byCommand.entrySet()) {
+				String key = entry.getKey();
+				int second = key.indexOf(SEP, key.indexOf(SEP) + 1);
+				long[] offsets = entry.getValue();
+				for (int i = 1; i <= offsets[0]; i++) {
+					add(byTag, key.substring(0, second), offsets[i]);
+				}
+			}
+			// the offsets of a tag in recording order, across its commands
+			for (long[] offsets : byTag.values()) {
+				Arrays.sort(offsets, 1, (int) offsets[0] + 1);
+			}
+			return;
+		}
+		// no index: walk the records
+		long pos = MAGIC.length;
+		while (pos + 4 <= size) {
+			int length = ByteBuffer.wrap(read(pos, 4)).getInt();
+			if (length <= 0 || pos + 4 + length > size) {
+				break;
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(pos + 4, length)));
+			String host = in.readUTF();
+			String tag = in.readUTF();
+			String cmd = readString(in);
+			index(host, tag, cmd, pos);
+			pos += 4 + length;
+		}
+		end = pos;
+	}
+
+	private void index(String host, String tag, String cmd, long offset) {
+		add(byCommand, host + SEP + tag + SEP + cmd, offset);
+		add(byTag, host + SEP + tag, offset);
+		hosts.add(host);
+		records++;
+	}
+
+	// offsets[0] is the count
+	private static void add(HashMap<String, long[]> map, String key, long offset) {
+		long[] offsets = map.get(key);
+		if (offsets == null) {
+			offsets = new long[2];
+		} else if (offsets[0] + 1 == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[(int) ++offsets[0]] = offset;
+		map.put(key, offsets);
+	}
+
+	public synchronized void record(String host, String cmd, String tag, String[] output, long elapsedMillis) throws IOException {
+		if (!writable) {
+			throw new IOException(file + " is open for replay");
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeUTF(host);
+		out.writeUTF(tag);
+		writeString(out, cmd);
+		out.writeLong(elapsedMillis);
+		DeflaterOutputStream deflated = new DeflaterOutputStream(out);
+		DataOutputStream lines = new DataOutputStream(new BufferedOutputStream(deflated, 8192));
+		lines.writeInt(output.length);
+		for (int i = 0; i < output.length; i++) {
+			writeString(lines, output[i]);
+		}
+		lines.flush();
+		deflated.finish();
+		byte[] record = bytes.toByteArray();
+		ByteBuffer.wrap(record).putInt(record.length - 4);
+		write(end, record);
+		index(host, tag, cmd, end);
+		end += record.length;
+	}
+
+	// how many times tag was run on host with cmd, with any command when cmd is null
+	public synchronized int count(String host, String cmd, String tag) {
+		long[] offsets = offsets(host, cmd, tag);
+		return offsets == null ? 0 : (int) offsets[0];
+	}
+
+	// the occurrence-th answer (0 based) to tag on host with cmd (any command when cmd is null);
+	// past the last one the last answer is given again, null when there is none
+	public Entry get(String host, String cmd, String tag, int occurrence) throws IOException {
+		long offset;
+		synchronized (this) {
+			long[] offsets = offsets(host, cmd, tag);
+			if (offsets == null) {
+				return null;
+			}
+			offset = offsets[(int) Math.min(occurrence + 1L, offsets[0])];
+		}
+		int length = ByteBuffer.wrap(read(offset, 4)).getInt();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(offset + 4, length)));
+		String recordedHost = in.readUTF();
+		String recordedTag = in.readUTF();
+		String recordedCmd = readString(in);
+		long elapsedMillis = in.readLong();
+		DataInputStream lines = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in), 8192));
+		String[] output = new String[lines.readInt()];
+		for (int i = 0; i < output.length; i++) {
+			output[i] = readString(lines);
+		}
+		return new Entry(recordedHost, recordedTag, recordedCmd, elapsedMillis, output);
+	}
+
+	private long[] offsets(String host, String cmd, String tag) {
+		return cmd == null ? byTag.get(host + SEP + tag) : byCommand.get(host + SEP + tag + SEP + cmd);
+	}
+
+	// the recorded hosts, in the order they were first seen
+	public synchronized List<String> getHosts() {
+		return new ArrayList<String>(hosts);
+	}
+
+	public synchronized int size() {
+		return records;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void close() throws IOException {
+		try {
+			if (writable && channel.isOpen()) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+				DataOutputStream out = new DataOutputStream(bytes);
+				out.writeInt(byCommand.size());
+				for (Map.Entry<String, long[]> entry : byCommand.entrySet()) {
+					writeString(out, entry.getKey());
+					long[] offsets = entry.getValue();
+					out.writeInt((int) offsets[0]);
+					for (int i = 1; i <= offsets[0]; i++) {
+						out.writeLong(offsets[i]);
+					}
+				}
+				out.writeInt(hosts.size());
+				for (String host : hosts) {
+					writeString(out, host);
+				}
+				out.writeLong(end);
+				out.write(INDEX_MAGIC);
+				write(end, bytes.toByteArray());
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private byte[] read(long pos, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, pos + buffer.position()) < 0) {
+				throw new EOFException(file + " ends inside a record");
+			}
+		}
+		return buffer.array();
+	}
+
+	private void write(long pos, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, pos + buffer.position());
+		}
+	}
+
+	// commands and output lines can be longer than writeUTF allows
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,106 @@
+package Common;
+import java.util.*;
+
+// Classifies cachedFind output lines against the signatureFiles of a footprint in one pass.
+// The signatures are kept in a trie of their reversed characters, and a line is walked from its
+// last character backwards: every signature the line ends with is found in a single walk, and the
+// home directory is the part of the line in front of it. This replaces compiling and running
+// "(.*)" + sigFile for every line and signature, which backtracked over the whole path and
+// treated the signature as a regex.
+public class SignatureMatcher {
+
+	private static class Node {
+		char[] keys = new char[0];
+		Node[] children = new Node[0];
+		int sigIndex = -1;
+
+		Node child(char c) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		Node addChild(char c) {
+			Node node = child(c);
+			if (node == null) {
+				node = new Node();
+				keys = Arrays.copyOf(keys, keys.length + 1);
+				children = Arrays.copyOf(children, children.length + 1);
+				keys[keys.length - 1] = c;
+				children[children.length - 1] = node;
+			}
+			return node;
+		}
+	}
+
+	private final String[] sigFiles;
+	private final Node root = new Node();
+	private final int maxLength;
+
+	public SignatureMatcher(String[] sigFiles) {
+		this.sigFiles = sigFiles;
+		int max = 0;
+		for (int i = 0; i < sigFiles.length; i++) {
+			String sig = sigFiles[i];
+			if (sig.length() == 0) {
+				continue;
+			}
+			Node node = root;
+			for (int c = sig.length() - 1; c >= 0; c--) {
+				node = node.addChild(sig.charAt(c));
+			}
+			if (node.sigIndex < 0) {
+				node.sigIndex = i;
+			}
+			max = Math.max(max, sig.length());
+		}
+		this.maxLength = max;
+	}
+
+	public String[] getSigFiles() {
+		return sigFiles;
+	}
+
+	// index of the longest signature file line ends with, -1 if it ends with none
+	public int match(String line) {
+		int found = -1;
+		Node node = root;
+		int end = line.length() - 1;
+		for (int c = end; c >= 0 && end - c < maxLength; c--) {
+			node = node.child(line.charAt(c));
+			if (node == null) {
+				break;
+			}
+			if (node.sigIndex >= 0) {
+				found = node.sigIndex;
+			}
+		}
+		return found;
+	}
+
+	// store the index of every signature file line ends with into found (shortest first),
+	// returns how many there are
+	public int matchAll(String line, int[] found) {
+		int count = 0;
+		Node node = root;
+		int end = line.length() - 1;
+		for (int c = end; c >= 0 && end - c < maxLength && count < found.length; c--) {
+			node = node.child(line.charAt(c));
+			if (node == null) {
+				break;
+			}
+			if (node.sigIndex >= 0) {
+				found[count++] = node.sigIndex;
+			}
+		}
+		return count;
+	}
+
+	// home directory implied by line ending with signature file sigIndex
+	public String home(String line, int sigIndex) {
+		return line.substring(0, line.length() - sigFiles[sigIndex].length());
+	}
+}
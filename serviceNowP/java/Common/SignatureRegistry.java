@@ -0,0 +1,184 @@
+package Common;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.*;
+
+// The signatureFiles of every enabled footprint module of a scan, answered by one pass over the
+// host's files instead of a cachedFind with its own sigPatterns per module
+// (/bin/lsnrctl$|/bin/sqlplus$ for Oracle, /SYS/exe/run/R3trans$|/SYS/exe/run/saplicense$ for
+// SAP, ...). All signature files go into one SignatureMatcher; a line that ends with one of them
+// is routed to the SignatureScan of each module that registered it, where the footprint script
+// picks up its home directory candidates as before.
+public class SignatureRegistry implements FindOutputReader.LineHandler {
+
+	// signatureFiles of the UNIX footprints (UNIXOracle.xml, UNIXSAP.xml, UNIXSybase.xml)
+	public static final String ORACLE = "UNIXOracleFootprint";
+	public static final String SAP = "UNIXSAPFootprint";
+	public static final String SYBASE = "UNIXSybaseFootprint";
+
+	// a host's registry is shared by the footprint scripts of one scan, a later scan starts over
+	public static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+
+	// the cachedFind TTL of the host's find index, a full find after that (perl: 7*24*3600)
+	public static final long FIND_MAX_AGE_MILLIS = 7 * 24 * 3600 * 1000L;
+
+	private static final ConcurrentHashMap<String, SignatureRegistry> hosts = new ConcurrentHashMap<String, SignatureRegistry>();
+
+	private final LinkedHashMap<String, SignatureScan> scans = new LinkedHashMap<String, SignatureScan>();
+	private SignatureMatcher matcher;
+	private SignatureScan[][] routes;
+	private int[] found;
+	private boolean scanned = false;
+	// held while a scanOnce() walks the files, the other footprints of the host wait for it
+	private final Object scanLock = new Object();
+	private final long created = System.currentTimeMillis();
+
+	// a registry with the UNIX footprints registered
+	public static SignatureRegistry unixFootprints() {
+		SignatureRegistry registry = new SignatureRegistry();
+		registry.register(ORACLE, "/bin/lsnrctl<BDNA,>/bin/sqlplus");
+		registry.register(SAP, "/SYS/exe/run/R3trans<BDNA,>/SYS/exe/run/saplicense");
+		registry.register(SYBASE, "/bin/dataserver<BDNA,>/bin/xpserver<BDNA,>/install/startserver");
+		return registry;
+	}
+
+	// the registry the footprint scripts of host share during a scan
+	public static SignatureRegistry forHost(String host) {
+		SignatureRegistry registry = hosts.get(host);
+		if (registry != null && System.currentTimeMillis() - registry.created > MAX_AGE_MILLIS) {
+			hosts.remove(host, registry);
+			registry = null;
+		}
+		if (registry == null) {
+			hosts.putIfAbsent(host, unixFootprints());
+			registry = hosts.get(host);
+		}
+		return registry;
+	}
+
+	// drop the registry of host once its scan is done
+	public static void release(String host) {
+		hosts.remove(host);
+	}
+
+	public SignatureScan register(String module, String sigFileString) {
+		return register(module, sigFileString.split(BDNAResultWriter.SEPARATOR));
+	}
+
+	// the scan of module; registering other signature files than before starts it over and makes
+	// the next scan() walk the files again
+	public synchronized SignatureScan register(String module, String[] sigFiles) {
+		SignatureScan scan = scans.get(module);
+		if (scan != null && Arrays.equals(scan.getSigFiles(), sigFiles)) {
+			return scan;
+		}
+		scan = new SignatureScan(sigFiles);
+		scans.put(module, scan);
+		matcher = null;
+		scanned = false;
+		return scan;
+	}
+
+	public synchronized SignatureScan getScan(String module) {
+		return scans.get(module);
+	}
+
+	public synchronized Set<String> getModules() {
+		return new LinkedHashSet<String>(scans.keySet());
+	}
+
+	public synchronized boolean isScanned() {
+		return scanned;
+	}
+
+	// the signature files of all modules, each once
+	public synchronized String[] getSigFiles() {
+		build();
+		return matcher.getSigFiles();
+	}
+
+	private void build() {
+		if (matcher != null) {
+			return;
+		}
+		ArrayList<String> sigFiles = new ArrayList<String>();
+		ArrayList<ArrayList<SignatureScan>> byFile = new ArrayList<ArrayList<SignatureScan>>();
+		for (SignatureScan scan : scans.values()) {
+			String[] moduleFiles = scan.getSigFiles();
+			for (int i = 0; i < moduleFiles.length; i++) {
+				int index = sigFiles.indexOf(moduleFiles[i]);
+				if (index < 0) {
+					index = sigFiles.size();
+					sigFiles.add(moduleFiles[i]);
+					byFile.add(new ArrayList<SignatureScan>(1));
+				}
+				if (!byFile.get(index).contains(scan)) {
+					byFile.get(index).add(scan);
+				}
+			}
+		}
+		routes = new SignatureScan[byFile.size()][];
+		for (int i = 0; i < routes.length; i++) {
+			routes[i] = byFile.get(i).toArray(new SignatureScan[byFile.get(i).size()]);
+		}
+		matcher = new SignatureMatcher(sigFiles.toArray(new String[sigFiles.size()]));
+		found = new int[sigFiles.size()];
+	}
+
+	// route one find output line to the modules whose signature files it ends with
+	public synchronized void line(String one) {
+		build();
+		int count = matcher.matchAll(one, found);
+		for (int i = 0; i < count; i++) {
+			SignatureScan[] route = routes[found[i]];
+			for (int r = 0; r < route.length; r++) {
+				route[r].line(one);
+			}
+		}
+	}
+
+	// one find on host for all modules
+	public void scan(BDNAShell shell, String host, String root) {
+		// only the signature hits are kept, the find output is streamed through when shell can
+		FindOutputReader.read(shell, host, FindIndex.findCommand(null, root, getSigFiles()), "find", this);
+		synchronized (this) {
+			scanned = true;
+		}
+	}
+
+	// the one find of host for the footprints of a scan: the first caller walks the files, the
+	// others wait for it and find the scans filled
+	public void scanOnce(BDNAShell shell, String host, String root) {
+		synchronized (scanLock) {
+			if (!isScanned()) {
+				scan(shell, host, root);
+			}
+		}
+	}
+
+	// the same from the find index of host kept in indexDir between scans, refreshed from the
+	// directories that changed; one streamed find when there is no usable index
+	public void scanOnce(BDNAShell shell, String host, String root, File indexDir, String[] filePatterns) {
+		synchronized (scanLock) {
+			if (!isScanned()) {
+				try {
+					scan(FindIndex.cachedFind(indexDir, shell, host, FIND_MAX_AGE_MILLIS, filePatterns, root));
+				} catch (IOException e) {
+					scan(shell, host, root);
+				}
+			}
+		}
+	}
+
+	// one lookup of all signature basenames in the host's find index
+	public void scan(FindIndex index) {
+		long start = BDNAMetrics.start();
+		index.select(getSigFiles(), this);
+		BDNAMetrics.parse("find_index_select", start, 0);
+		synchronized (this) {
+			scanned = true;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package Common;
+import java.util.*;
+
+// Collects the home directory candidates of a footprint from cachedFind output lines:
+//   sigPath records what signature files were found,
+//   homeDir records what home directory candidate contains a signature file,
+// and confirmHomes keeps the candidates that contain all of them.
+// Lines are handed in one at a time (see FindOutputReader) so only the hits are kept, and each
+// line is classified against all signature files at once by a SignatureMatcher.
+public class SignatureScan implements FindOutputReader.LineHandler {
+
+	private final String[] sigFiles;
+	private final SignatureMatcher matcher;
+	private final int[] found;
+	private final Map<String, Integer> sigPath = new HashMap<String, Integer>();
+	private final Map<String, Integer> homeDir = new HashMap<String, Integer>();
+
+	public SignatureScan(String[] sigFiles) {
+		this(new SignatureMatcher(sigFiles));
+	}
+
+	public SignatureScan(SignatureMatcher matcher) {
+		this.sigFiles = matcher.getSigFiles();
+		this.matcher = matcher;
+		this.found = new int[sigFiles.length];
+	}
+
+	public void line(String one) {
+		if (one.length() == 0) {
+			return;
+		}
+		//&echo("considering $one for a home directory...");
+		int count = matcher.matchAll(one, found);
+		if (count > 0) {
+			//$sigPath{$one} = 1;
+			sigPath.put(one, 1);
+		}
+		for (int i = 0; i < count; i++) {
+			homeDir.put(matcher.home(one, found[i]), 1);
+		}
+	}
+
+	// the candidate home directories that contain every signature file, in candidate order;
+	// one lookup per signature file, so tens of thousands of candidates stay cheap
+	public ArrayList<String> confirmHomes(Collection<String> candidates) {
+		long start = BDNAMetrics.start();
+		ArrayList<String> resultDir = new ArrayList<String>();
+		for (String dir : candidates) {
+			if (containsAllSignatures(dir)) {
+				resultDir.add(dir);
+			}
+		}
+		BDNAMetrics.parse("confirm_homes", start, candidates.size());
+		return resultDir;
+	}
+
+	public boolean containsAllSignatures(String dir) {
+		for (int i = 0; i < sigFiles.length; i++) {
+			if (!sigPath.containsKey(dir + sigFiles[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String[] getSigFiles() {
+		return sigFiles;
+	}
+
+	public Map<String, Integer> getSigPath() {
+		return sigPath;
+	}
+
+	public Map<String, Integer> getHomeDir() {
+		return homeDir;
+	}
+}
@@ -0,0 +1,12 @@
+package Common;
+
+// A BDNAShell that hands the output of a command to a LineHandler line by line as it arrives,
+// so a large output (a full-root find) is filtered on the way in and never held as a String[].
+// FindOutputReader.read(shell, ...) streams through it when the shell has it and falls back to
+// the String[] of shellcmd otherwise.
+public interface StreamingShell extends BDNAShell {
+
+	// run cmd on host and feed every output line to handler, returns the number of lines
+	long shellcmd(String host, String cmd, String tag, FindOutputReader.LineHandler handler);
+
+}
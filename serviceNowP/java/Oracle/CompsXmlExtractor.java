@@ -0,0 +1,109 @@
+package UNIXOracle;
+import java.io.Reader;
+import java.util.ArrayList;
+import javax.xml.stream.*;
+
+import Common.BDNAMetrics;
+import Common.LinesReader;
+
+// Pulls what the footprint needs out of $ORACLE_HOME/inventory/ContentsXML/comps.xml in one
+// streaming (StAX) pass over a single fetch of the file:
+//   VER and XML_INV_LOC of <COMP NAME="oracle.server" ...>,
+//   the edition from the first <INST_TYPE NAME="EE|SE" .../>,
+//   optionally the NAME/VER of every installed <COMP>.
+// comps.xml is often several MB on patched homes, so without the component list the pass
+// stops as soon as the three fields are found.
+public class CompsXmlExtractor {
+
+	public static class Result {
+		private String serverVersion = "";
+		private String invLoc = "";
+		private String edition = "";
+		private final ArrayList<String> components = new ArrayList<String>();
+
+		public String getServerVersion() {
+			return serverVersion;
+		}
+
+		// XML_INV_LOC without the trailing '/', as the perl regex captured it
+		public String getInvLoc() {
+			return invLoc;
+		}
+
+		// Enterprise or Standard
+		public String getEdition() {
+			return edition;
+		}
+
+		// "<name> <ver>" of every COMP, only filled when asked for
+		public ArrayList<String> getComponents() {
+			return components;
+		}
+
+		boolean complete() {
+			return !serverVersion.equals("") && !invLoc.equals("") && !edition.equals("");
+		}
+	}
+
+	private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+	static {
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+	}
+
+	// output of cat comps.xml, anything in front of the first '<' line is shell noise
+	public static Result extract(String[] output, boolean components) {
+		long start = BDNAMetrics.start();
+		int first = 0;
+		while (first < output.length && (output[first] == null || !output[first].trim().startsWith("<"))) {
+			first++;
+		}
+		Result result = extract(new LinesReader(output, first), components);
+		BDNAMetrics.parse("comps_xml", start, output.length);
+		return result;
+	}
+
+	public static Result extract(Reader in, boolean components) {
+		Result result = new Result();
+		XMLStreamReader reader = null;
+		try {
+			reader = factory.createXMLStreamReader(in);
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String element = reader.getLocalName();
+				if (element.equals("COMP")) {
+					String name = reader.getAttributeValue(null, "NAME");
+					String ver = reader.getAttributeValue(null, "VER");
+					if (components && name != null) {
+						result.components.add(name + " " + (ver == null ? "" : ver));
+					}
+					if ("oracle.server".equals(name) && result.serverVersion.equals("")) {
+						result.serverVersion = ver == null ? "" : ver;
+						String xmlInvLoc = reader.getAttributeValue(null, "XML_INV_LOC");
+						if (xmlInvLoc != null && xmlInvLoc.endsWith("/")) {
+							result.invLoc = xmlInvLoc.substring(0, xmlInvLoc.length() - 1);
+						}
+					}
+				} else if (element.equals("INST_TYPE") && result.edition.equals("")) {
+					result.edition = OracleHomeProbe.editionName(String.valueOf(reader.getAttributeValue(null, "NAME")));
+				}
+				if (!components && result.complete()) {
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			// truncated or broken comps.xml, keep what was found so far
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,69 @@
+package UNIXOracle;
+import java.util.*;
+
+import Common.BDNAMetrics;
+
+// Index of the instance names found in an $ORACLE_HOME/dbs listing, used to re-validate that a
+// SID belongs to the home. The listing is read once and the SID is taken out of the three file
+// name shapes an instance leaves there:
+//   lk<oracle_sid>, hc_<oracle_sid>.dat, spfile<oracle_sid>.ora
+// The prefixes and suffixes are matched as written, the SID part case-insensitively, so each
+// validated SID is a hash lookup instead of three regexes per dbs file.
+public class DbsSidIndex {
+
+	// lower-cased SID -> file it was found by
+	private final Map<String, String> sids = new HashMap<String, String>();
+
+	public DbsSidIndex(String[] dbsFiles) {
+		long start = BDNAMetrics.start();
+		for (int j = 0; j < dbsFiles.length; j++) {
+			add(dbsFiles[j]);
+		}
+		BDNAMetrics.parse("dbs_files", start, dbsFiles.length);
+	}
+
+	private void add(String dbsLine) {
+		if (dbsLine == null) {
+			return;
+		}
+		String file = dbsLine.trim();
+		String sid = null;
+		if (file.startsWith("lk")) {
+			sid = file.substring(2);
+		} else if (file.startsWith("hc_") && file.endsWith(".dat")) {
+			sid = file.substring(3, file.length() - 4);
+		} else if (file.startsWith("spfile") && file.endsWith(".ora")) {
+			sid = file.substring(6, file.length() - 4);
+		}
+		if (sid != null && sid.length() > 0) {
+			sid = sid.toLowerCase(Locale.ENGLISH);
+			if (!sids.containsKey(sid)) {
+				sids.put(sid, file);
+			}
+		}
+	}
+
+	public boolean contains(String sid) {
+		return sid != null && sids.containsKey(sid.toLowerCase(Locale.ENGLISH));
+	}
+
+	// dbs file that proves sid belongs to the home, null if there is none
+	public String foundBy(String sid) {
+		return sid == null ? null : sids.get(sid.toLowerCase(Locale.ENGLISH));
+	}
+
+	// the validated SIDs that have a lk/hc_/spfile file in dbs, in validated order
+	public ArrayList<String> reValidate(List<String> validatedSids) {
+		ArrayList<String> reValidated = new ArrayList<String>();
+		for (int i = 0; i < validatedSids.size(); i++) {
+			if (contains(validatedSids.get(i))) {
+				reValidated.add(validatedSids.get(i));
+			}
+		}
+		return reValidated;
+	}
+
+	public int size() {
+		return sids.size();
+	}
+}
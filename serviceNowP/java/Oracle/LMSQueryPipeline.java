@@ -0,0 +1,149 @@
+package UNIXOracle;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.*;
+
+// Runs the SELECTs of the UNIXOracleLMS collectors (v$option, dba_feature_usage_statistics,
+// dba_users, v$license, v$session, ...) of one instance as a group over a single pooled
+// connection, instead of one execSQL round of logon/parse/row-at-a-time fetch per statement.
+//   - every statement is prepared once per connection (OracleConnectionPool statement cache),
+//   - rows are array-fetched with fetchSize rows per round trip,
+//   - each row is appended to its result as it is read, lines joined with "\n" in the form
+//     &execSQL returns them, so no row set is held besides the result text itself.
+// A failing statement records its ORA- message as its result and the others still run, like
+// the eval {} blocks of the perl collectors. runAll() audits many instances in parallel.
+public class LMSQueryPipeline {
+
+	public static final int DEFAULT_FETCH_SIZE = 500;
+
+	// TestJDBC against the pool: java UNIXOracle.LMSQueryPipeline [url user password], with the
+	// Oracle JDBC driver (classes12.jar / ojdbc*.jar of the ORACLE_HOME) on the classpath
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "jdbc:oracle:thin:@192.168.8.245:1521:ora11g";
+		String user = args.length > 1 ? args[1] : "system";
+		String password = args.length > 2 ? args[2] : "bdnacn";
+		try {
+			Class.forName("oracle.jdbc.driver.OracleDriver");
+		} catch (ClassNotFoundException e) {
+			System.out.println("no Oracle JDBC driver on the classpath, " + e.getMessage());
+			return;
+		}
+		OracleConnectionPool pool = OracleConnectionPool.forInstance(url, user, password);
+		try {
+			LMSQueryPipeline pipeline = new LMSQueryPipeline()
+					.add("Partition", "select value from v$option where parameter = 'Partitioning'")
+					.add("dbaPart", "select count(*) from dba_part_tables where owner not in ('SYS', 'SYSTEM')")
+					.add("users", "select username from dba_users");
+			for (Map.Entry<String, String> result : pipeline.run(pool).entrySet()) {
+				System.out.println(result.getKey() + ": " + result.getValue());
+			}
+			// a collector's execSQL over the same pool, no second logon
+			String[] output = new OracleQueryExecutor(pool).execSQL("select banner from v$version", "version");
+			for (int i = 0; i < output.length; i++) {
+				System.out.println(output[i]);
+			}
+			System.out.println("logons: " + pool.getLogons());
+		} finally {
+			OracleConnectionPool.closeAll();
+		}
+	}
+
+	private final ArrayList<String> keys = new ArrayList<String>();
+	private final ArrayList<String> statements = new ArrayList<String>();
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+
+	// result key (e.g. "Partition", "dbaPart") and its statement
+	public LMSQueryPipeline add(String key, String sql) {
+		keys.add(key);
+		statements.add(sql);
+		return this;
+	}
+
+	public LMSQueryPipeline setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
+	public int size() {
+		return keys.size();
+	}
+
+	// run every statement of the pipeline against one instance
+	public Map<String, String> run(OracleConnectionPool pool) throws SQLException {
+		Map<String, String> results = new LinkedHashMap<String, String>();
+		OracleConnectionPool.PooledConnection pooled = pool.borrow(OracleQueryExecutor.BORROW_TIMEOUT_MILLIS);
+		boolean broken = false;
+		try {
+			for (int q = 0; q < statements.size(); q++) {
+				StringBuilder output = new StringBuilder();
+				try {
+					fetch(pooled.prepare(statements.get(q)), output);
+				} catch (SQLException e) {
+					if (!OracleQueryExecutor.isValid(pooled.getConnection())) {
+						broken = true;
+						throw e;
+					}
+					output.setLength(0);
+					output.append(e.getMessage() == null ? e.toString() : e.getMessage().trim());
+				}
+				results.put(keys.get(q), output.toString());
+			}
+		} finally {
+			pool.release(pooled, broken);
+		}
+		return results;
+	}
+
+	private void fetch(PreparedStatement stmt, StringBuilder output) throws SQLException {
+		stmt.setFetchSize(fetchSize);
+		ResultSet rs = stmt.executeQuery();
+		try {
+			int columns = rs.getMetaData().getColumnCount();
+			int rows = 0;
+			while (rs.next()) {
+				if (rows++ > 0) {
+					output.append('\n');
+				}
+				OracleQueryExecutor.appendRow(rs, columns, output);
+			}
+			if (rows == 0) {
+				output.append("no rows selected");
+			}
+		} finally {
+			rs.close();
+		}
+	}
+
+	// run the pipeline against many instances, parallelism at a time; an instance that cannot be
+	// reached gets its error under the "" key
+	public Map<String, Map<String, String>> runAll(Map<String, OracleConnectionPool> instances, int parallelism) throws InterruptedException {
+		Map<String, Map<String, String>> all = new LinkedHashMap<String, Map<String, String>>();
+		if (instances.isEmpty()) {
+			return all;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, instances.size())));
+		try {
+			Map<String, Future<Map<String, String>>> futures = new LinkedHashMap<String, Future<Map<String, String>>>();
+			for (final Map.Entry<String, OracleConnectionPool> instance : instances.entrySet()) {
+				futures.put(instance.getKey(), executor.submit(new Callable<Map<String, String>>() {
+					public Map<String, String> call() throws Exception {
+						return run(instance.getValue());
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Map<String, String>>> future : futures.entrySet()) {
+				try {
+					all.put(future.getKey(), future.getValue().get());
+				} catch (ExecutionException e) {
+					Map<String, String> failed = new LinkedHashMap<String, String>();
+					failed.put("", String.valueOf(e.getCause().getMessage()));
+					all.put(future.getKey(), failed);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return all;
+	}
+}
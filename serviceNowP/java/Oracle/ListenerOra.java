@@ -0,0 +1,31 @@
+package UNIXOracle;
+import java.util.ArrayList;
+import java.util.regex.*;
+
+import Common.BDNAMetrics;
+
+// Listener names declared in $ORACLE_HOME/network/admin/listener.ora: every "NAME =" entry that
+// is not an ADR_BASE_<listener> or SID_LIST_<listener> parameter.
+public class ListenerOra {
+
+	private static final Pattern lisNameRegex = Pattern.compile("^(\\w+)\\s+=");
+
+	// names in the order the script reports them (last entry of the file first)
+	public static ArrayList<String> listenerNames(String[] output) {
+		long start = BDNAMetrics.start();
+		ArrayList<String> names = new ArrayList<String>();
+		for (int oplength = output.length - 1; oplength >= 0; oplength--) {
+			String oplin = output[oplength];
+			if (oplin == null || oplin.contains("ADR_BASE") || oplin.contains("SID_LIST")) {
+				continue;
+			}
+			Matcher oplinMat = lisNameRegex.matcher(oplin);
+			if (oplinMat.find()) {
+				//listenerNames += $BDNA_Separator + oplinMat.group(1);
+				names.add(oplinMat.group(1));
+			}
+		}
+		BDNAMetrics.parse("listener_ora", start, output.length);
+		return names;
+	}
+}
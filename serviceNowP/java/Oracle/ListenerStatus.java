@@ -0,0 +1,149 @@
+package UNIXOracle;
+import java.util.ArrayList;
+import java.util.*;
+
+// What `lsnrctl status` / `lsnrctl services` tell about one listener, as parsed by LsnrctlParser.
+// Collectors that need listener data (installation, L3, LMS) read this model instead of
+// running lsnrctl again and matching their own regexes against its output.
+public class ListenerStatus {
+
+	public static class Handler {
+		private final String name;
+		private final String state;
+
+		Handler(String name, String state) {
+			this.name = name;
+			this.state = state;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		// ready, blocked, ... as lsnrctl services prints it, "" when not shown
+		public String getState() {
+			return state;
+		}
+	}
+
+	public static class Instance {
+		private final String name;
+		private final String status;
+		private final int handlerCount;
+		final ArrayList<Handler> handlers = new ArrayList<Handler>();
+
+		Instance(String name, String status, int handlerCount) {
+			this.name = name;
+			this.status = status;
+			this.handlerCount = handlerCount;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		// READY, UNKNOWN, BLOCKED, ...
+		public String getStatus() {
+			return status;
+		}
+
+		public int getHandlerCount() {
+			return handlerCount;
+		}
+
+		public List<Handler> getHandlers() {
+			return handlers;
+		}
+	}
+
+	public static class Service {
+		private final String name;
+		private final int handlerCount;
+		final ArrayList<Instance> instances = new ArrayList<Instance>();
+
+		Service(String name, int handlerCount) {
+			this.name = name;
+			this.handlerCount = handlerCount;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		// Oracle 8i "<service> has N service handler(s)", -1 for 9i and later
+		public int getHandlerCount() {
+			return handlerCount;
+		}
+
+		public List<Instance> getInstances() {
+			return instances;
+		}
+	}
+
+	String connectingTo = "";
+	String alias = "";
+	String version = "";
+	String startDate = "";
+	String parameterFile = "";
+	String logFile = "";
+	final ArrayList<String> endpoints = new ArrayList<String>();
+	final ArrayList<Service> services = new ArrayList<Service>();
+
+	// the address lsnrctl connected to, "(DESCRIPTION=(ADDRESS=...))"
+	public String getConnectingTo() {
+		return connectingTo;
+	}
+
+	public String getAlias() {
+		return alias;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public String getStartDate() {
+		return startDate;
+	}
+
+	public String getParameterFile() {
+		return parameterFile;
+	}
+
+	public String getLogFile() {
+		return logFile;
+	}
+
+	public List<String> getEndpoints() {
+		return endpoints;
+	}
+
+	public List<Service> getServices() {
+		return services;
+	}
+
+	// the listener parameter file must match the installation directory
+	public boolean belongsTo(String home) {
+		return parameterFile.length() > 0 && parameterFile.startsWith(home);
+	}
+
+	// listener/service pairs for $BDNA_Results{"listenerServices"}: the 8i services, and for 9i
+	// and later the instances (to be consistent with 8i, we get the instances instead of the
+	// services), empty when the listener belongs to another home
+	public List<String[]> listenerServices(String home) {
+		ArrayList<String[]> pairs = new ArrayList<String[]>();
+		if (!belongsTo(home)) {
+			return pairs;
+		}
+		for (int i = 0; i < services.size(); i++) {
+			Service service = services.get(i);
+			if (service.handlerCount >= 0) {
+				pairs.add(new String[] {alias, service.name});
+			}
+			for (int j = 0; j < service.instances.size(); j++) {
+				pairs.add(new String[] {alias, service.instances.get(j).name});
+			}
+		}
+		return pairs;
+	}
+}
@@ -0,0 +1,102 @@
+package UNIXOracle;
+import java.util.Iterator;
+import java.util.concurrent.*;
+
+import Common.BDNAShell;
+
+// Parsed `lsnrctl status` per host and ORACLE_HOME for the length of a scan, so the
+// installation, L3 and LMS collectors share one lsnrctl run and one parse. An entry is kept
+// MAX_AGE_MILLIS, a later scan runs lsnrctl again; expired entries are swept at most once a
+// minute so a long-lived runner does not keep every host it has seen. Collectors asking for the
+// same host and home at once wait for the one lsnrctl run the first of them started.
+public class ListenerStatusCache {
+
+	public static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+
+	private static final ListenerStatusCache shared = new ListenerStatusCache(MAX_AGE_MILLIS);
+
+	private static class Entry {
+		final FutureTask<ListenerStatus> status;
+		final long created = System.currentTimeMillis();
+
+		Entry(FutureTask<ListenerStatus> status) {
+			this.status = status;
+		}
+	}
+
+	private final long maxAgeMillis;
+	private final ConcurrentHashMap<String, Entry> statuses = new ConcurrentHashMap<String, Entry>();
+	private volatile long swept = System.currentTimeMillis();
+
+	public ListenerStatusCache(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	// the cache the collectors of one runner share
+	public static ListenerStatusCache shared() {
+		return shared;
+	}
+
+	public ListenerStatus status(final BDNAShell shell, final String host, final String home) {
+		String key = host + "|" + home;
+		long now = System.currentTimeMillis();
+		Entry entry = statuses.get(key);
+		while (entry == null || now - entry.created >= maxAgeMillis) {
+			sweep(now);
+			Entry fresh = new Entry(new FutureTask<ListenerStatus>(new Callable<ListenerStatus>() {
+				public ListenerStatus call() {
+					return LsnrctlParser.parse(OracleHomeProbe.shellcmd(shell, host, home, true, statusCommand(home), "lsnrctl_status"));
+				}
+			}));
+			// only the collector whose entry went in runs lsnrctl, the others wait for its answer
+			if (entry == null ? statuses.putIfAbsent(key, fresh) == null : statuses.replace(key, entry, fresh)) {
+				fresh.status.run();
+				entry = fresh;
+				break;
+			}
+			entry = statuses.get(key);
+		}
+		try {
+			return entry.status.get();
+		} catch (ExecutionException e) {
+			// a failed run is not kept, the next collector tries again
+			statuses.remove(key, entry);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted waiting for lsnrctl status of " + home + " on " + host);
+		}
+	}
+
+	private void sweep(long now) {
+		if (now - swept < 60 * 1000L) {
+			return;
+		}
+		swept = now;
+		Iterator<Entry> entries = statuses.values().iterator();
+		while (entries.hasNext()) {
+			if (now - entries.next().created >= maxAgeMillis) {
+				entries.remove();
+			}
+		}
+	}
+
+	// ORACLE_HOME and LD_LIBRARY_PATH come from OracleHomeProbe.shellcmd, the environment context
+	// of a RemoteShell or the export preamble of any other shell
+	public static String statusCommand(String home) {
+		//$cmd = join("\n",
+		//        "export ORACLE_HOME",
+		//        "export LD_LIBRARY_PATH",
+		//        "ORACLE_HOME='$home'",
+		//        "LD_LIBRARY_PATH='$home/lib'",
+		//        "'$home/bin/lsnrctl' status");
+		return "'" + home + "/bin/lsnrctl' status";
+	}
+
+	public void clear() {
+		statuses.clear();
+	}
+}
@@ -0,0 +1,125 @@
+package UNIXOracle;
+
+import Common.BDNAMetrics;
+
+// Single-pass parser for `lsnrctl status` and `lsnrctl services` output. Instead of matching a
+// chain of regexes against every line it walks the output as a small state machine
+// (header -> endpoints -> services) and only looks at line prefixes and quotes:
+//
+//   Connecting to (DESCRIPTION=(ADDRESS=(PROTOCOL=TCP)(HOST=192.168.9.102)(PORT=1521)))
+//   Alias                     LISTENER
+//   Listener Parameter File   /u01/app/oracle/product/11.2.0/network/admin/listener.ora
+//   Listening Endpoints Summary...
+//     (DESCRIPTION=(ADDRESS=(PROTOCOL=tcp)(HOST=192.168.9.102)(PORT=1521)))
+//   Services Summary...
+//   Service "ora11g" has 1 instance(s).
+//     Instance "ora11g", status READY, has 1 handler(s) for this service...
+//       Handler(s):
+//         "DEDICATED" established:0 refused:0 state:ready
+//   ora8i         has 1 service handler(s)                          (Oracle 8i)
+public class LsnrctlParser {
+
+	private static final int HEADER = 0, ENDPOINTS = 1, SERVICES = 2;
+
+	public static ListenerStatus parse(String[] output) {
+		long start = BDNAMetrics.start();
+		ListenerStatus status = new ListenerStatus();
+		int state = HEADER;
+		ListenerStatus.Service service = null;
+		ListenerStatus.Instance instance = null;
+		for (int i = 0; i < output.length; i++) {
+			if (output[i] == null) {
+				continue;
+			}
+			String line = output[i].trim();
+			if (line.length() == 0) {
+				continue;
+			}
+			if (line.startsWith("Connecting to ")) {
+				status.connectingTo = line.substring(14).trim();
+			} else if (line.startsWith("Listening Endpoints Summary")) {
+				state = ENDPOINTS;
+			} else if (line.startsWith("Services Summary")) {
+				state = SERVICES;
+			} else if (line.startsWith("Service \"")) {
+				// lsnrctl services has no summary line
+				state = SERVICES;
+				service = new ListenerStatus.Service(quoted(line, 8), -1);
+				status.services.add(service);
+				instance = null;
+			} else if (line.startsWith("Instance \"")) {
+				if (service == null) {
+					service = new ListenerStatus.Service("", -1);
+					status.services.add(service);
+				}
+				int end = line.indexOf('"', 10);
+				instance = new ListenerStatus.Instance(quoted(line, 9), word(line, after(line, "status ", end)), number(line, after(line, " has ", end)));
+				service.instances.add(instance);
+			} else if (line.startsWith("\"") && instance != null) {
+				instance.handlers.add(new ListenerStatus.Handler(quoted(line, 0), word(line, after(line, "state:", 0))));
+			} else if (line.startsWith("The command completed")) {
+				break;
+			} else if (state == HEADER) {
+				header(status, line);
+			} else if (state == ENDPOINTS && line.startsWith("(")) {
+				status.endpoints.add(line);
+			} else if (state == SERVICES && line.endsWith("service handler(s)")) {
+				// Oracle 8i output (no clear distinction between instances and services)
+				int has = line.indexOf(" has ");
+				if (has > 0) {
+					service = new ListenerStatus.Service(line.substring(0, has).trim(), number(line, has + 5));
+					status.services.add(service);
+					instance = null;
+				}
+			}
+		}
+		BDNAMetrics.parse("lsnrctl", start, output.length);
+		return status;
+	}
+
+	private static void header(ListenerStatus status, String line) {
+		if (line.startsWith("Alias")) {
+			status.alias = line.substring(5).trim();
+		} else if (line.startsWith("Version")) {
+			status.version = line.substring(7).trim();
+		} else if (line.startsWith("Start Date")) {
+			status.startDate = line.substring(10).trim();
+		} else if (line.startsWith("Listener Parameter File")) {
+			status.parameterFile = line.substring(23).trim();
+		} else if (line.startsWith("Listener Log File")) {
+			status.logFile = line.substring(17).trim();
+		}
+	}
+
+	// index right behind token, -1 when it is not there
+	private static int after(String line, String token, int from) {
+		int at = from < 0 ? -1 : line.indexOf(token, from);
+		return at < 0 ? -1 : at + token.length();
+	}
+
+	// text between the quote at from and the next one
+	private static String quoted(String line, int from) {
+		int end = line.indexOf('"', from + 1);
+		return end < 0 ? line.substring(from + 1) : line.substring(from + 1, end);
+	}
+
+	// word starting at from, up to a space or comma
+	private static String word(String line, int from) {
+		if (from < 0 || from > line.length()) {
+			return "";
+		}
+		int end = from;
+		while (end < line.length() && line.charAt(end) != ' ' && line.charAt(end) != ',') {
+			end++;
+		}
+		return line.substring(from, end);
+	}
+
+	private static int number(String line, int from) {
+		int n = 0;
+		for (int i = from; from >= 0 && i < line.length() && Character.isDigit(line.charAt(i)); i++) {
+			n = n * 10 + (line.charAt(i) - '0');
+		}
+		return n;
+	}
+}
@@ -0,0 +1,270 @@
+package UNIXOracle;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.*;
+
+// Connection pool for one Oracle instance, shared by all the LMS collectors of that instance
+// (UNIXOracleInstanceLMSOptionsStaticScript ... UNIXOracleInstanceLMSRawDataVSessionStaticScript).
+// TestJDBC-style code opens a DriverManager connection per query; on audited databases each of
+// those is a logon. Here one logon serves a whole LMS collection:
+//   - at most maxSize connections, borrowers wait when all are in use,
+//   - connections idle longer than idleMillis are closed, by a daemon sweep every
+//     EVICT_PERIOD_MILLIS so a pool nobody borrows from any more does not keep its logons,
+//   - each connection keeps an LRU cache of prepared statements.
+// Pools are looked up per instance and credentials with forInstance() and closed with closeAll()
+// after a scan.
+public class OracleConnectionPool {
+
+	public static final int DEFAULT_MAX_SIZE = 2;
+	public static final long DEFAULT_IDLE_MILLIS = 60 * 1000L;
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+	static final long EVICT_PERIOD_MILLIS = 15 * 1000L;
+
+	private static final Map<String, OracleConnectionPool> pools = new HashMap<String, OracleConnectionPool>();
+	private static ScheduledExecutorService evictor = null;
+
+	// a pooled connection with its statement cache
+	public static class PooledConnection {
+		private final Connection connection;
+		private final LinkedHashMap<String, PreparedStatement> statements;
+		long lastUsed = System.currentTimeMillis();
+
+		PooledConnection(Connection connection, final int statementCacheSize) {
+			this.connection = connection;
+			this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+					if (size() > statementCacheSize) {
+						closeQuietly(eldest.getValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		// prepared statement for sql, reused while it stays in the cache
+		public PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement stmt = statements.get(sql);
+			if (stmt == null || stmt.isClosed()) {
+				stmt = connection.prepareStatement(sql);
+				statements.put(sql, stmt);
+			}
+			return stmt;
+		}
+
+		void close() {
+			for (PreparedStatement stmt : statements.values()) {
+				closeQuietly(stmt);
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (SQLException e) {
+			}
+		}
+	}
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+	private final long idleMillis;
+	private final int statementCacheSize;
+
+	private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+	private int open = 0;
+	private long logons = 0;
+	private boolean closed = false;
+
+	public OracleConnectionPool(String url, String user, String password, int maxSize, long idleMillis, int statementCacheSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize < 1 ? 1 : maxSize;
+		this.idleMillis = idleMillis;
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	// the shared pool of an instance, e.g. jdbc:oracle:thin:@192.168.8.245:1521:ora11g
+	// a changed password gets its own pool, connections of the old one are never handed out for it;
+	// the key holds a digest of the password, not the password itself
+	public static OracleConnectionPool forInstance(String url, String user, String password) {
+		String key = url + "|" + user + "|" + digest(password);
+		synchronized (pools) {
+			OracleConnectionPool pool = pools.get(key);
+			if (pool == null || pool.isClosed()) {
+				pool = new OracleConnectionPool(url, user, password, DEFAULT_MAX_SIZE, DEFAULT_IDLE_MILLIS, DEFAULT_STATEMENT_CACHE_SIZE);
+				pools.put(key, pool);
+			}
+			if (evictor == null) {
+				evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "OracleConnectionPool-evictor");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				evictor.scheduleWithFixedDelay(new Runnable() {
+					public void run() {
+						evictAll();
+					}
+				}, EVICT_PERIOD_MILLIS, EVICT_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			return pool;
+		}
+	}
+
+	// close the idle connections of every pool and forget the closed pools
+	static void evictAll() {
+		ArrayList<OracleConnectionPool> all;
+		synchronized (pools) {
+			Iterator<OracleConnectionPool> iter = pools.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().isClosed()) {
+					iter.remove();
+				}
+			}
+			all = new ArrayList<OracleConnectionPool>(pools.values());
+		}
+		for (OracleConnectionPool pool : all) {
+			pool.evictIdle();
+		}
+	}
+
+	public static void closeAll() {
+		synchronized (pools) {
+			for (OracleConnectionPool pool : pools.values()) {
+				pool.close();
+			}
+			pools.clear();
+			if (evictor != null) {
+				evictor.shutdownNow();
+				evictor = null;
+			}
+		}
+	}
+
+	public PooledConnection borrow(long timeoutMillis) throws SQLException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (this) {
+			while (true) {
+				if (closed) {
+					throw new SQLException("connection pool for " + url + " is closed");
+				}
+				evictIdle();
+				if (!idle.isEmpty()) {
+					return idle.removeFirst();
+				}
+				if (open < maxSize) {
+					open++;
+					break;
+				}
+				long wait = deadline - System.currentTimeMillis();
+				if (wait <= 0) {
+					throw new SQLException("no connection to " + url + " available within " + timeoutMillis + " ms");
+				}
+				try {
+					wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("interrupted waiting for a connection to " + url);
+				}
+			}
+		}
+		// logon outside the lock, it is the slow part
+		try {
+			Connection connection = DriverManager.getConnection(url, user, password);
+			synchronized (this) {
+				logons++;
+			}
+			return new PooledConnection(connection, statementCacheSize);
+		} catch (SQLException e) {
+			synchronized (this) {
+				open--;
+				notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	// hand a connection back; broken ones are closed instead of pooled
+	public void release(PooledConnection pooled, boolean broken) {
+		synchronized (this) {
+			if (broken || closed) {
+				open--;
+				pooled.close();
+			} else {
+				pooled.lastUsed = System.currentTimeMillis();
+				idle.addFirst(pooled);
+			}
+			notifyAll();
+		}
+	}
+
+	public synchronized void evictIdle() {
+		long now = System.currentTimeMillis();
+		Iterator<PooledConnection> iter = idle.iterator();
+		while (iter.hasNext()) {
+			PooledConnection pooled = iter.next();
+			if (now - pooled.lastUsed > idleMillis) {
+				iter.remove();
+				open--;
+				pooled.close();
+			}
+		}
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	public synchronized void close() {
+		closed = true;
+		for (PooledConnection pooled : idle) {
+			pooled.close();
+			open--;
+		}
+		idle.clear();
+		notifyAll();
+	}
+
+	// number of DriverManager logons this pool made
+	public synchronized long getLogons() {
+		return logons;
+	}
+
+	public synchronized int getOpen() {
+		return open;
+	}
+
+	// SHA-256 of s in hex
+	static String digest(String s) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(String.valueOf(s).getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (int i = 0; i < hash.length; i++) {
+				hex.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every JRE has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static void closeQuietly(Statement stmt) {
+		if (stmt != null) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+			}
+		}
+	}
+}
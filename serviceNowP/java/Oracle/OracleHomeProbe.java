@@ -0,0 +1,116 @@
+package UNIXOracle;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.BDNAShell;
+import Common.RemoteShell;
+
+// The version/edition/XML_INV_LOC probes UNIXOracleFootprintStaticScript runs for every Oracle
+// home it finds: svrmgrl -?, then sqlplus -V, then one read of comps.xml.
+public class OracleHomeProbe {
+
+	public static class Info {
+		private final String version;
+		private final String edition;
+		private final String invLoc;
+
+		public Info(String version, String edition, String invLoc) {
+			this.version = version;
+			this.edition = edition;
+			this.invLoc = invLoc;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public String getEdition() {
+			return edition;
+		}
+
+		public String getInvLoc() {
+			return invLoc;
+		}
+	}
+
+	private static final Pattern verRegex = Pattern.compile("Release (\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)");
+	private static final Map<String, String> remapMajorVersion = new HashMap<String, String>();
+	static {
+		remapMajorVersion.put("2", "7");
+		remapMajorVersion.put("3", "8");
+	}
+
+	public static Info probe(BDNAShell shell, String host, String dir) {
+		String verString = version(shellcmd(shell, host, dir, true, "'" + dir + "/bin/svrmgrl' '-?' < /dev/null", "svrmgrl_version"), true);
+		if (verString.equals("")) {
+			// OK, svrmgrl didn't work.  (Is this 9i? 9i doesn't provide svrmgrl.)
+			// Try sqlplus -V (which doesn't work before 9i....)
+			verString = version(shellcmd(shell, host, dir, true, "'" + dir + "/bin/sqlplus' -V < /dev/null", "sqlplus_version"), false);
+		}
+
+		// one cat of $dir/inventory/ContentsXML/comps.xml for both XML_INV_LOC and the edition
+		CompsXmlExtractor.Result comps = CompsXmlExtractor.extract(shellcmd(shell, host, dir, false, "cat '" + dir + "/inventory/ContentsXML/comps.xml' < /dev/null", "comps_xml"), false);
+		String invLoc = comps.getInvLoc();
+		String edtionString = comps.getEdition();
+		if (verString.equals("") && comps.getServerVersion().length() > 0) {
+			// neither svrmgrl nor sqlplus answered, fall back to the oracle.server VER
+			verString = version(new String[] {"Release " + comps.getServerVersion()}, false);
+		}
+
+		return new Info(verString, edtionString, invLoc);
+	}
+
+	// a RemoteShell keeps ORACLE_HOME/LD_LIBRARY_PATH of dir exported for all three probes, other
+	// shells get the export preamble in front of every command
+	static String[] shellcmd(BDNAShell shell, String host, String dir, boolean libraryPath, String cmd, String tag) {
+		if (shell instanceof RemoteShell) {
+			return ((RemoteShell) shell).shellcmd(host, environment(dir), cmd, tag);
+		}
+		return shell.shellcmd(host, env(dir, libraryPath) + cmd, tag);
+	}
+
+	// the environment context of an Oracle home
+	public static Map<String, String> environment(String dir) {
+		Map<String, String> env = new LinkedHashMap<String, String>();
+		env.put("ORACLE_HOME", dir);
+		env.put("LD_LIBRARY_PATH", dir + "/lib");
+		return env;
+	}
+
+	static String env(String dir, boolean libraryPath) {
+		String cmd = "export ORACLE_HOME" + "\n" + "export LD_LIBRARY_PATH" + "\n" + "ORACLE_HOME='" + dir + "'" + "\n";
+		if (libraryPath) {
+			cmd += "LD_LIBRARY_PATH='" + dir + "/lib'" + "\n";
+		}
+		return cmd;
+	}
+
+	// svrmgrl exists before 9i, and will tell us a version number.
+	// But its version number doesn't always give the same major version
+	// number that people think of when they think Oracle database numbers,
+	// so we need to do some re-mapping.
+	static String version(String[] output, boolean remap) {
+		for (int j = 0; j < output.length; j++) {
+			Matcher matcher = verRegex.matcher(output[j]);
+			if (matcher.find()) {
+				String major = matcher.group(1);
+				if (remap && remapMajorVersion.containsKey(major)) {
+					//&echo("Remapped svrmgrl-reported major version from '$1' to '$remapMajorVersion{$1}'.");
+					major = remapMajorVersion.get(major);
+				}
+				return major + "." + matcher.group(2) + "." + matcher.group(3);
+			}
+		}
+		return "";
+	}
+
+	static String editionName(String instType) {
+		if (instType.equals("EE")) {
+			return "Enterprise";
+		}
+		if (instType.equals("SE")) {
+			return "Standard";
+		}
+		return "";
+	}
+}
@@ -0,0 +1,182 @@
+package UNIXOracle;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import Common.BDNAShell;
+import Common.FindOutputReader;
+
+// Local, persistent cache of the OracleHomeProbe results per (host, home). The version, edition
+// and XML_INV_LOC of a home only change when the home is patched, so a rescan first fetches a
+// cheap fingerprint of the home in one command:
+//   the inode of the home (ls -Lid, as UNIXOracleInstallationStaticScript computes it) and
+//   the ls -Ln lines (size, mtime) of bin/sqlplus and inventory/ContentsXML/comps.xml
+// and only runs svrmgrl/sqlplus/comps.xml probes when the fingerprint changed.
+// A probe that found no version (sqlplus timed out, no svrmgrl/sqlplus answer) is not cached,
+// the next scan probes the home again.
+// Each host has its own properties file in the cache directory, one line per home, read when
+// the host is first probed. save(host) writes it once per scan of the host, through a temp file
+// and an atomic move, with only the homes seen in that scan, and forgets the host in memory;
+// collectors scanning other hosts never touch the file.
+public class OracleHomeProbeCache {
+
+	private static final String SEP = "\t";
+
+	private final File dir;
+	// host -> home -> fingerprint, version, edition and XML_INV_LOC
+	private final Map<String, Properties> hosts = new HashMap<String, Properties>();
+	// host -> the homes of the running scan
+	private final Map<String, Set<String>> seen = new HashMap<String, Set<String>>();
+	private final Set<String> changed = new HashSet<String>();
+	private long hits = 0, misses = 0;
+
+	public OracleHomeProbeCache(File dir) {
+		this.dir = dir;
+	}
+
+	// the cache file of host, its name made safe for the filesystem
+	File file(String host) {
+		String name = host.replaceAll("[^A-Za-z0-9._-]", "_");
+		if (!name.equals(host) || name.startsWith(".")) {
+			name = name + "-" + Integer.toHexString(host.hashCode());
+		}
+		return new File(dir, name + ".cache");
+	}
+
+	private Properties entries(String host) {
+		Properties entries = hosts.get(host);
+		if (entries != null) {
+			return entries;
+		}
+		entries = new Properties();
+		hosts.put(host, entries);
+		seen.put(host, new HashSet<String>());
+		File file = file(host);
+		if (file.exists()) {
+			InputStream in = null;
+			try {
+				in = new FileInputStream(file);
+				entries.load(in);
+			} catch (IOException e) {
+				// a broken cache only costs the probes
+				entries.clear();
+			} finally {
+				close(in);
+			}
+		}
+		return entries;
+	}
+
+	public OracleHomeProbe.Info probe(BDNAShell shell, String host, String dir) {
+		String fingerprint = fingerprint(shell.shellcmd(host, fingerprintCommand(dir), "home_fingerprint"), dir);
+		synchronized (this) {
+			Properties entries = entries(host);
+			seen.get(host).add(dir);
+			String cached = entries.getProperty(dir);
+			if (fingerprint != null && cached != null) {
+				String[] fields = cached.split(SEP, -1);
+				if (fields.length == 4 && fields[0].equals(fingerprint)) {
+					hits++;
+					return new OracleHomeProbe.Info(fields[1], fields[2], fields[3]);
+				}
+			}
+			if (fingerprint != null) {
+				misses++;
+			}
+		}
+		OracleHomeProbe.Info info = OracleHomeProbe.probe(shell, host, dir);
+		if (fingerprint != null && info.getVersion().length() > 0) {
+			synchronized (this) {
+				entries(host).setProperty(dir, fingerprint + SEP + info.getVersion() + SEP + info.getEdition() + SEP + info.getInvLoc());
+				changed.add(host);
+			}
+		}
+		return info;
+	}
+
+	static String fingerprintCommand(String dir) {
+		return "echo `ls -Lid '" + dir + "'` __BDNA_RESULT__" + "\n" + "ls -Ln '" + dir + "/bin/sqlplus' '" + dir + "/inventory/ContentsXML/comps.xml' 2> /dev/null";
+	}
+
+	// null when the home inode could not be read, then the home is not cached
+	static String fingerprint(String[] output, String dir) {
+		StringBuilder fingerprint = new StringBuilder();
+		boolean inode = false;
+		for (int j = 0; j < output.length; j++) {
+			String line = FindOutputReader.chomp(output[j]).trim();
+			if (line.endsWith("__BDNA_RESULT__") && line.length() > "__BDNA_RESULT__".length()) {
+				inode = Character.isDigit(line.charAt(0));
+			}
+			if (line.length() > 0) {
+				fingerprint.append(line).append('|');
+			}
+		}
+		return inode ? fingerprint.toString().replace(SEP, " ") : null;
+	}
+
+	// write the probes of host when its scan changed them or no longer saw some of its homes,
+	// then forget the host until its next scan
+	public void save(String host) {
+		Properties snapshot = new Properties();
+		synchronized (this) {
+			Properties entries = hosts.remove(host);
+			Set<String> homes = seen.remove(host);
+			boolean dirty = changed.remove(host);
+			if (entries == null) {
+				return;
+			}
+			for (String home : homes) {
+				if (entries.getProperty(home) != null) {
+					snapshot.setProperty(home, entries.getProperty(home));
+				}
+			}
+			if (!dirty && snapshot.size() == entries.size()) {
+				return;
+			}
+		}
+		File file = file(host);
+		if (snapshot.isEmpty()) {
+			file.delete();
+			return;
+		}
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+		// a temp file of its own and an atomic move, so runners saving at once cannot mix their files
+		File tmp = null;
+		OutputStream out = null;
+		try {
+			tmp = File.createTempFile(file.getName(), ".tmp", dir);
+			out = new FileOutputStream(tmp);
+			snapshot.store(out, "Oracle home version/edition/XML_INV_LOC probes of " + host);
+			out.close();
+			out = null;
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// keep probing without the cache
+			if (tmp != null) {
+				tmp.delete();
+			}
+		} finally {
+			close(out);
+		}
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,242 @@
+package UNIXOracle;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.regex.*;
+import java.util.*;
+
+import Common.BDNAShell;
+
+// Validates the running SIDs of one ORACLE_HOME by trying a connection with a dummy user.
+// SIDs are checked concurrently, at most maxConcurrency at a time for the same host (several
+// homes of one host share the cap of the first validation running there, and the cap is
+// forgotten when the host has no validation left), while the strategies of a single SID stay
+// sequential. The SID checks of all validators run on one shared pool of daemon threads.
+// With setBatched(true) all SIDs and strategies go to the host as one script instead
+// (see OracleValidationBatch), trading extra sqlplus runs for a single round trip.
+// With setStats() the strategies of a SID are tried most likely first (see OracleValidationStats),
+// batched or not, and every attempt is recorded there, otherwise in the perl order.
+// validated/invalidated lists come out in the same order as the sequential perl loops, by the
+// phase of the strategy that validated each SID:
+// validated = phase 1 hits in SID order followed by phase 2 hits in SID order,
+// invalidated = every SID no phase 1 strategy validated.
+public class OracleInstanceValidator {
+
+	public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+	// Example messages:
+	// ORA-01017: invalid username/password; logon denied
+	// ORA-04031: unable to allocate 16108 bytes of shared memory...
+	// ORA-28000: the account is locked....
+	private static final Pattern lineRegex = Pattern.compile("ORA-(01017|04031|28000):");
+	private static final Pattern spaceRegex = Pattern.compile("\\s+");
+
+	// permits of the hosts with a validation running, and how many validations share them
+	private static final Map<String, Semaphore> hostPermits = new HashMap<String, Semaphore>();
+	private static final Map<String, Integer> hostUsers = new HashMap<String, Integer>();
+
+	// a SID check is only submitted once it holds its host permit, so the threads are bounded by
+	// the permits of the hosts being validated; idle ones go away after a minute
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "OracleInstanceValidator-" + ++count);
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final BDNAShell shell;
+	private final String host;
+	private final String home;
+	private final int maxConcurrency;
+	private boolean batched = false;
+	private OracleValidationStats stats = null;
+
+	public OracleInstanceValidator(BDNAShell shell, String host, String home) {
+		this(shell, host, home, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	public OracleInstanceValidator(BDNAShell shell, String host, String home, int maxConcurrency) {
+		this.shell = shell;
+		this.host = host;
+		this.home = home;
+		this.maxConcurrency = maxConcurrency < 1 ? 1 : maxConcurrency;
+	}
+
+	public void setBatched(boolean batched) {
+		this.batched = batched;
+	}
+
+	public void setStats(OracleValidationStats stats) {
+		this.stats = stats;
+	}
+
+	public Result validate(String[] sids) throws InterruptedException {
+		final String[] cleaned = new String[sids.length];
+		for (int i = 0; i < sids.length; i++) {
+			cleaned[i] = spaceRegex.matcher(sids[i]).replaceAll("");
+		}
+
+		// strategy that validated each SID, null when none did
+		OracleValidationStrategy[] validatedBy = new OracleValidationStrategy[cleaned.length];
+		if (batched && cleaned.length > 0) {
+			OracleValidationBatch batch = new OracleValidationBatch(home, cleaned, stats == null ? OracleValidationStrategy.values() : stats.order(host, home));
+			validatedBy = batch.validatedBy(shell.shellcmd(host, batch.command(), "validate_instance_batch"), stats, host);
+		} else if (cleaned.length <= 1 || maxConcurrency == 1) {
+			for (int i = 0; i < cleaned.length; i++) {
+				validatedBy[i] = validateSid(cleaned[i]);
+			}
+		} else {
+			final Semaphore permits = acquirePermits(host, maxConcurrency);
+			ArrayList<Future<OracleValidationStrategy>> futures = new ArrayList<Future<OracleValidationStrategy>>();
+			ArrayList<AtomicInteger> states = new ArrayList<AtomicInteger>();
+			try {
+				for (int i = 0; i < cleaned.length; i++) {
+					final String sid = cleaned[i];
+					// 0 queued, 1 running, 2 abandoned: the permit of a check cancelled before it
+					// ran is given back here, the one of a started check by the check itself
+					final AtomicInteger state = new AtomicInteger();
+					states.add(state);
+					permits.acquire();
+					try {
+						futures.add(executor.submit(new Callable<OracleValidationStrategy>() {
+							public OracleValidationStrategy call() throws Exception {
+								if (!state.compareAndSet(0, 1)) {
+									return null;
+								}
+								try {
+									return validateSid(sid);
+								} finally {
+									permits.release();
+								}
+							}
+						}));
+					} catch (RejectedExecutionException e) {
+						state.set(2);
+						permits.release();
+						throw e;
+					}
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					try {
+						validatedBy[i] = futures.get(i).get();
+					} catch (ExecutionException e) {
+						throw new RuntimeException("validating " + cleaned[i] + " for " + home + " failed", e.getCause());
+					}
+				}
+			} finally {
+				// an interrupted or failed validation leaves no SID check behind
+				for (int i = 0; i < futures.size(); i++) {
+					futures.get(i).cancel(true);
+					if (states.get(i).compareAndSet(0, 2)) {
+						permits.release();
+					}
+				}
+				releasePermits(host);
+			}
+		}
+		if (stats != null) {
+			stats.save();
+		}
+		return Result.of(cleaned, validatedBy);
+	}
+
+	// try the strategies in order and stop at the first one that reaches the instance
+	OracleValidationStrategy validateSid(String sid) {
+		OracleValidationStrategy[] order = stats == null ? OracleValidationStrategy.values() : stats.order(host, home);
+		for (OracleValidationStrategy strategy : order) {
+			//&echo("Trying to validate $sid for $home using $strategy.");
+			boolean validated = isValidated(shell.shellcmd(host, strategy.command(home, sid), "validate_instance"));
+			if (stats != null) {
+				stats.record(host, home, strategy, validated);
+			}
+			if (validated) {
+				//&echo("Validated Oracle instance $sid for $home using $strategy.");
+				return strategy;
+			}
+		}
+		return null;
+	}
+
+	static boolean isValidated(String[] output) {
+		if (output == null) {
+			return false;
+		}
+		for (int j = 0; j < output.length; j++) {
+			if (output[j] != null && lineRegex.matcher(output[j]).find()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Semaphore acquirePermits(String host, int maxConcurrency) {
+		synchronized (hostPermits) {
+			Semaphore permits = hostPermits.get(host);
+			Integer users = hostUsers.get(host);
+			if (permits == null) {
+				permits = new Semaphore(maxConcurrency, true);
+				hostPermits.put(host, permits);
+			}
+			hostUsers.put(host, users == null ? 1 : users + 1);
+			return permits;
+		}
+	}
+
+	private static void releasePermits(String host) {
+		synchronized (hostPermits) {
+			int users = hostUsers.get(host) - 1;
+			if (users == 0) {
+				hostUsers.remove(host);
+				hostPermits.remove(host);
+			} else {
+				hostUsers.put(host, users);
+			}
+		}
+	}
+
+	// the validation cap of $BDNA_Params, DEFAULT_MAX_CONCURRENCY when not set or not a number
+	public static int maxConcurrency(String param) {
+		if (param == null) {
+			return DEFAULT_MAX_CONCURRENCY;
+		}
+		try {
+			return Integer.parseInt(param.trim());
+		} catch (NumberFormatException e) {
+			return DEFAULT_MAX_CONCURRENCY;
+		}
+	}
+
+	public static class Result {
+		private final ArrayList<String> validatedSids = new ArrayList<String>();
+		private final ArrayList<String> invalidatedSids = new ArrayList<String>();
+
+		static Result of(String[] sids, OracleValidationStrategy[] validatedBy) {
+			Result result = new Result();
+			for (int i = 0; i < sids.length; i++) {
+				if (validatedBy[i] != null && validatedBy[i].getPhase() == 1) {
+					result.validatedSids.add(sids[i]);
+				} else {
+					result.invalidatedSids.add(sids[i]);
+				}
+			}
+			// Now the remaining Oracle instances validated using earlier approach
+			for (int i = 0; i < sids.length; i++) {
+				if (validatedBy[i] != null && validatedBy[i].getPhase() == 2) {
+					result.validatedSids.add(sids[i]);
+				}
+			}
+			return result;
+		}
+
+		public ArrayList<String> getValidatedSids() {
+			return validatedSids;
+		}
+
+		public ArrayList<String> getInvalidatedSids() {
+			return invalidatedSids;
+		}
+	}
+}
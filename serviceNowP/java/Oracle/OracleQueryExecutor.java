@@ -0,0 +1,110 @@
+package UNIXOracle;
+import java.sql.*;
+import java.util.ArrayList;
+
+// Runs the LMS collector queries of one instance over its OracleConnectionPool.
+// execSQL() answers like the perl &execSQL($host, $sql, $tag) the LMS scripts call: one line per
+// row with its columns joined by <BDNA> markers, the same text LMSQueryPipeline produces, "no
+// rows selected" for an empty result and the ORA- message lines on error, so the collectors keep
+// their parsing.
+public class OracleQueryExecutor {
+
+	public static final long BORROW_TIMEOUT_MILLIS = 30 * 1000L;
+
+	public interface RowHandler {
+		void row(ResultSet rs) throws SQLException;
+	}
+
+	private final OracleConnectionPool pool;
+
+	public OracleQueryExecutor(OracleConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	public OracleConnectionPool getPool() {
+		return pool;
+	}
+
+	// stream every row of sql to handler, returns the row count
+	public int query(String sql, int fetchSize, RowHandler handler) throws SQLException {
+		OracleConnectionPool.PooledConnection pooled = pool.borrow(BORROW_TIMEOUT_MILLIS);
+		boolean broken = false;
+		ResultSet rs = null;
+		try {
+			PreparedStatement stmt = pooled.prepare(sql);
+			if (fetchSize > 0) {
+				stmt.setFetchSize(fetchSize);
+			}
+			rs = stmt.executeQuery();
+			int rows = 0;
+			while (rs.next()) {
+				handler.row(rs);
+				rows++;
+			}
+			return rows;
+		} catch (SQLException e) {
+			broken = !isValid(pooled.getConnection());
+			throw e;
+		} finally {
+			if (rs != null) {
+				try {
+					rs.close();
+				} catch (SQLException e) {
+				}
+			}
+			pool.release(pooled, broken);
+		}
+	}
+
+	public String[] execSQL(String sql, String tag) {
+		final ArrayList<String> output = new ArrayList<String>();
+		try {
+			int rows = query(sql, 0, new RowHandler() {
+				private int columns = -1;
+
+				public void row(ResultSet rs) throws SQLException {
+					if (columns < 0) {
+						columns = rs.getMetaData().getColumnCount();
+					}
+					StringBuilder line = new StringBuilder();
+					appendRow(rs, columns, line);
+					output.add(line.toString());
+				}
+			});
+			if (rows == 0) {
+				output.add("no rows selected");
+			}
+		} catch (SQLException e) {
+			String message = e.getMessage() == null ? e.toString() : e.getMessage();
+			String[] lines = message.split("\r?\n");
+			for (int i = 0; i < lines.length; i++) {
+				if (lines[i].length() > 0) {
+					output.add(lines[i]);
+				}
+			}
+		}
+		return output.toArray(new String[output.size()]);
+	}
+
+	// the columns of the current row joined with <BDNA>, null columns empty
+	static void appendRow(ResultSet rs, int columns, StringBuilder line) throws SQLException {
+		for (int c = 1; c <= columns; c++) {
+			if (c > 1) {
+				line.append("<BDNA>");
+			}
+			String value = rs.getString(c);
+			if (value != null) {
+				line.append(value);
+			}
+		}
+	}
+
+	// a connection that cannot even answer isValid is broken
+	static boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(2);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package UNIXOracle;
+import java.util.ArrayList;
+import java.util.*;
+
+import Common.BDNAMetrics;
+import Common.FindOutputReader;
+
+// One shell script per ORACLE_HOME that validates every SID, instead of one &shellcmd per SID
+// and strategy. The strategies of a SID are tried in the given order (the perl order, or the
+// learned one of OracleValidationStats) and the first one whose output has one of the ORA- errors
+// of OracleInstanceValidator stops the SID, as the sequential loop does. Each attempt runs in its
+// own subshell (oraenv changes the environment) and its output is framed by marker lines, e.g.
+//   __BDNA_VALIDATE__ BEGIN ora11g ORAENV
+//   ORA-01017: invalid username/password; logon denied
+//   __BDNA_VALIDATE__ END ora11g ORAENV
+// so the whole output can be split back into per-SID, per-strategy results; the strategies that
+// were not reached have none.
+public class OracleValidationBatch {
+
+	static final String MARKER = "__BDNA_VALIDATE__";
+
+	private final String home;
+	private final String[] sids;
+	private final OracleValidationStrategy[] order;
+
+	public OracleValidationBatch(String home, String[] sids) {
+		this(home, sids, OracleValidationStrategy.values());
+	}
+
+	public OracleValidationBatch(String home, String[] sids, OracleValidationStrategy[] order) {
+		this.home = home;
+		this.sids = sids;
+		this.order = order;
+	}
+
+	public String command() {
+		StringBuilder cmd = new StringBuilder();
+		for (int i = 0; i < sids.length; i++) {
+			cmd.append("__bdna_ok=\n");
+			for (OracleValidationStrategy strategy : order) {
+				String key = sids[i] + " " + strategy.name();
+				cmd.append("if [ -z \"$__bdna_ok\" ]; then\n");
+				cmd.append("echo '").append(MARKER).append(" BEGIN ").append(key).append("'\n");
+				cmd.append("__bdna_out=`(\n").append(strategy.command(home, sids[i])).append("\n) 2>&1`\n");
+				cmd.append("echo \"$__bdna_out\"\n");
+				cmd.append("echo '").append(MARKER).append(" END ").append(key).append("'\n");
+				cmd.append("case \"$__bdna_out\" in *ORA-01017:*|*ORA-04031:*|*ORA-28000:*) __bdna_ok=1;; esac\n");
+				cmd.append("fi\n");
+			}
+		}
+		return cmd.toString();
+	}
+
+	// split the batch output into the output lines of each "<sid> <STRATEGY>" attempt
+	public static Map<String, String[]> split(String[] output) {
+		Map<String, String[]> results = new HashMap<String, String[]>();
+		String key = null;
+		ArrayList<String> lines = new ArrayList<String>();
+		for (int j = 0; j < output.length; j++) {
+			String line = FindOutputReader.chomp(output[j]);
+			if (line.startsWith(MARKER + " BEGIN ")) {
+				key = line.substring(MARKER.length() + 7).trim();
+				lines.clear();
+			} else if (line.startsWith(MARKER + " END ")) {
+				if (key != null) {
+					results.put(key, lines.toArray(new String[lines.size()]));
+				}
+				key = null;
+			} else if (key != null) {
+				lines.add(line);
+			}
+		}
+		return results;
+	}
+
+	// first strategy, in the order they were tried, that validated each SID
+	public OracleValidationStrategy[] validatedBy(String[] output) {
+		return validatedBy(output, null, null);
+	}
+
+	// the same, recording every attempt that ran into stats for host
+	public OracleValidationStrategy[] validatedBy(String[] output, OracleValidationStats stats, String host) {
+		long start = BDNAMetrics.start();
+		Map<String, String[]> results = split(output);
+		OracleValidationStrategy[] validatedBy = new OracleValidationStrategy[sids.length];
+		for (int i = 0; i < sids.length; i++) {
+			for (OracleValidationStrategy strategy : order) {
+				String[] attempt = results.get(sids[i] + " " + strategy.name());
+				if (attempt == null) {
+					continue;
+				}
+				boolean validated = OracleInstanceValidator.isValidated(attempt);
+				if (stats != null) {
+					stats.record(host, home, strategy, validated);
+				}
+				if (validated) {
+					validatedBy[i] = strategy;
+					break;
+				}
+			}
+		}
+		BDNAMetrics.parse("validation_batch", start, output.length);
+		return validatedBy;
+	}
+}
@@ -0,0 +1,199 @@
+package UNIXOracle;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+// Local, persistent record of how the SIDs of each (host, home) were validated: the strategy
+// that validated a SID last and, per strategy, how often it was tried and how often it reached
+// the instance. OracleInstanceValidator tries the strategies in order(), across both phases:
+//   the last winner first, then by success rate, (successes + 1) / (attempts + 2) so a strategy
+//   never tried sits between the ones that work and the ones that fail, ties in perl order.
+// A host where only ORACLE_HOME@localhost works costs one sqlplus per SID on a rescan instead
+// of five. The validated/invalidated lists still group a SID by the phase of the strategy that
+// validated it (OracleInstanceValidator.Result). Counts are halved past MAX_ATTEMPTS so a home
+// that changed is relearned.
+// Each host has its own properties file in the stats directory, one line per home, loaded when
+// the host is first asked about; runners scanning other hosts do not overwrite it.
+public class OracleValidationStats {
+
+	private static final String SEP = "\t";
+	static final int MAX_ATTEMPTS = 64;
+
+	private static class Entry {
+		OracleValidationStrategy last;
+		final int[] attempts = new int[OracleValidationStrategy.values().length];
+		final int[] successes = new int[OracleValidationStrategy.values().length];
+
+		double rate(OracleValidationStrategy strategy) {
+			return (successes[strategy.ordinal()] + 1.0) / (attempts[strategy.ordinal()] + 2.0);
+		}
+	}
+
+	private final File dir;
+	// host -> home -> entry
+	private final Map<String, Map<String, Entry>> hosts = new HashMap<String, Map<String, Entry>>();
+	private final Set<String> changed = new HashSet<String>();
+
+	public OracleValidationStats(File dir) {
+		this.dir = dir;
+	}
+
+	// the stats file of host, its name made safe for the filesystem
+	File file(String host) {
+		String name = host.replaceAll("[^A-Za-z0-9._-]", "_");
+		if (!name.equals(host) || name.startsWith(".")) {
+			name = name + "-" + Integer.toHexString(host.hashCode());
+		}
+		return new File(dir, name + ".stats");
+	}
+
+	private Map<String, Entry> entries(String host) {
+		Map<String, Entry> entries = hosts.get(host);
+		if (entries != null) {
+			return entries;
+		}
+		entries = new HashMap<String, Entry>();
+		hosts.put(host, entries);
+		File file = file(host);
+		if (file.exists()) {
+			Properties properties = new Properties();
+			InputStream in = null;
+			try {
+				in = new FileInputStream(file);
+				properties.load(in);
+				for (String home : properties.stringPropertyNames()) {
+					Entry entry = parse(properties.getProperty(home));
+					if (entry != null) {
+						entries.put(home, entry);
+					}
+				}
+			} catch (IOException e) {
+				// broken stats only cost the perl order
+				entries.clear();
+			} finally {
+				close(in);
+			}
+		}
+		return entries;
+	}
+
+	// last<TAB>attempts/successes of every strategy in enum order, null when it does not fit
+	private static Entry parse(String value) {
+		String[] fields = value.split(SEP, -1);
+		OracleValidationStrategy[] strategies = OracleValidationStrategy.values();
+		if (fields.length != strategies.length + 1) {
+			return null;
+		}
+		Entry entry = new Entry();
+		try {
+			entry.last = fields[0].length() == 0 ? null : OracleValidationStrategy.valueOf(fields[0]);
+			for (int i = 0; i < strategies.length; i++) {
+				int slash = fields[i + 1].indexOf('/');
+				entry.attempts[i] = Integer.parseInt(fields[i + 1].substring(0, slash));
+				entry.successes[i] = Integer.parseInt(fields[i + 1].substring(slash + 1));
+			}
+		} catch (RuntimeException e) {
+			return null;
+		}
+		return entry;
+	}
+
+	private static String format(Entry entry) {
+		StringBuilder value = new StringBuilder(entry.last == null ? "" : entry.last.name());
+		for (int i = 0; i < entry.attempts.length; i++) {
+			value.append(SEP).append(entry.attempts[i]).append('/').append(entry.successes[i]);
+		}
+		return value.toString();
+	}
+
+	// the strategies for a SID of home on host, most likely to validate first
+	public synchronized OracleValidationStrategy[] order(String host, String home) {
+		OracleValidationStrategy[] order = OracleValidationStrategy.values();
+		final Entry entry = entries(host).get(home);
+		if (entry == null) {
+			return order;
+		}
+		// a stable sort, equal strategies keep the perl order
+		Arrays.sort(order, new Comparator<OracleValidationStrategy>() {
+			public int compare(OracleValidationStrategy a, OracleValidationStrategy b) {
+				if (a == entry.last || b == entry.last) {
+					return a == entry.last ? (b == entry.last ? 0 : -1) : 1;
+				}
+				return Double.compare(entry.rate(b), entry.rate(a));
+			}
+		});
+		return order;
+	}
+
+	public synchronized void record(String host, String home, OracleValidationStrategy strategy, boolean validated) {
+		Map<String, Entry> entries = entries(host);
+		Entry entry = entries.get(home);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(home, entry);
+		}
+		int i = strategy.ordinal();
+		if (entry.attempts[i] >= MAX_ATTEMPTS) {
+			entry.attempts[i] /= 2;
+			entry.successes[i] /= 2;
+		}
+		entry.attempts[i]++;
+		if (validated) {
+			entry.successes[i]++;
+			entry.last = strategy;
+		}
+		changed.add(host);
+	}
+
+	// write the stats of the hosts recorded since the last save
+	public void save() {
+		Map<String, Properties> snapshots = new HashMap<String, Properties>();
+		synchronized (this) {
+			for (String host : changed) {
+				Properties snapshot = new Properties();
+				for (Map.Entry<String, Entry> entry : hosts.get(host).entrySet()) {
+					snapshot.setProperty(entry.getKey(), format(entry.getValue()));
+				}
+				snapshots.put(host, snapshot);
+			}
+			changed.clear();
+		}
+		if (snapshots.isEmpty()) {
+			return;
+		}
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+		for (Map.Entry<String, Properties> snapshot : snapshots.entrySet()) {
+			File file = file(snapshot.getKey());
+			// a temp file of its own and an atomic move, so runners saving at once cannot mix their files
+			File tmp = null;
+			OutputStream out = null;
+			try {
+				tmp = File.createTempFile(file.getName(), ".tmp", dir);
+				out = new FileOutputStream(tmp);
+				snapshot.getValue().store(out, "Oracle instance validation strategies of " + snapshot.getKey() + ": last winner, attempts/successes");
+				out.close();
+				out = null;
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// keep validating without persisting
+				if (tmp != null) {
+					tmp.delete();
+				}
+			} finally {
+				close(out);
+			}
+		}
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package UNIXOracle;
+
+// The ways UNIXOracleInstallationDynamicScript tries to reach an instance with the dummy
+// BDNA_VALIDATE user, in the order the perl script tries them. Phase 1 strategies are tried for
+// every SID, phase 2 strategies only for the SIDs that phase 1 could not validate.
+public enum OracleValidationStrategy {
+
+	// . $home/bin/oraenv, then sqlplus
+	ORAENV(1),
+	// for BUG27992---set TWO_TASK before oraenv
+	TWO_TASK(1),
+	// oraenv and sqlplus @localhost/$sid
+	ORAENV_LOCALHOST(1),
+	// plain ORACLE_HOME/ORACLE_SID/LD_LIBRARY_PATH environment (earlier approach)
+	ORACLE_HOME(2),
+	// ORACLE_HOME environment and sqlplus @localhost/$sid
+	ORACLE_HOME_LOCALHOST(2);
+
+	private final int phase;
+
+	private OracleValidationStrategy(int phase) {
+		this.phase = phase;
+	}
+
+	public int getPhase() {
+		return phase;
+	}
+
+	// build the shell script that runs sqlplus for sid under home with this strategy
+	public String command(String home, String sid) {
+		String sqlplus = "'" + home + "/bin/sqlplus' BDNA_VALIDATE/BDNA_WRONG_PASSWORD";
+		switch (this) {
+		case ORAENV:
+			return oraenv(home, sid, false) + "\n" + sqlplus + " < /dev/null";
+		case TWO_TASK:
+			return oraenv(home, sid, true) + "\n" + sqlplus + " < /dev/null";
+		case ORAENV_LOCALHOST:
+			return oraenv(home, sid, false) + "\n" + sqlplus + "@localhost/" + sid + " < /dev/null";
+		case ORACLE_HOME:
+			return oracleHome(home, sid) + "\n" + sqlplus + " < /dev/null";
+		default:
+			return oracleHome(home, sid) + "\n" + sqlplus + "@localhost/" + sid + " < /dev/null";
+		}
+	}
+
+	private static String oraenv(String home, String sid, boolean twoTask) {
+		//$cmd0 = join("\n",
+		//        "PATH=$home/bin:/sbin:/bin:/usr/sbin:/usr/bin:/usr/local/sbin:/usr/local/bin",
+		//        "export ORAENV_ASK",
+		//        "export ORACLE_SID",
+		//        "ORAENV_ASK=NO",
+		//        "ORACLE_SID=$sid",
+		//        ". $home/bin/oraenv");
+		String cmd = "PATH=" + home + "/bin:/sbin:/bin:/usr/sbin:/usr/bin:/usr/local/sbin:/usr/local/bin" + "\n" + "export ORAENV_ASK" + "\n" + "export ORACLE_SID" + "\n";
+		if (twoTask) {
+			cmd += "export TWO_TASK" + "\n";
+		}
+		cmd += "ORAENV_ASK=NO" + "\n" + "ORACLE_SID=" + sid + "\n";
+		if (twoTask) {
+			cmd += "TWO_TASK=" + sid + "\n";
+		}
+		return cmd + ". " + home + "/bin/oraenv";
+	}
+
+	private static String oracleHome(String home, String sid) {
+		//$cmd0 = join("\n",
+		//        "export ORACLE_HOME",
+		//        "export ORACLE_SID",
+		//        "export LD_LIBRARY_PATH",
+		//        "ORACLE_HOME='$home'",
+		//        "ORACLE_SID='$sid'",
+		//        "LD_LIBRARY_PATH='$home/lib'");
+		return "export ORACLE_HOME" + "\n" + "export ORACLE_SID" + "\n" + "export LD_LIBRARY_PATH" + "\n" + "ORACLE_HOME='" + home + "'" + "\n" + "ORACLE_SID='" + sid + "'" + "\n" + "LD_LIBRARY_PATH='" + home + "/lib'";
+	}
+}
@@ -1,106 +1,71 @@
 package Sybase;
-import java.awt.List;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.regex.*;
 import java.util.*;
 
-public class UNIXSAPFootprintStaticScript {
-	public static void main(String[] args) {
+import Common.BDNALog;
+import Common.BDNAResultWriter;
+import Common.BDNAScript;
+import Common.BDNAShell;
+import Common.FakeShell;
+import Common.SignatureRegistry;
+import Common.SignatureScan;
+
+public class UNIXSAPFootprintStaticScript implements BDNAScript {
+	public static void main(String[] args) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("root.types.footprint.SAPFootprint.UNIXSAPFootprint:signatureFiles", "/SYS/exe/run/R3trans<BDNA,>/SYS/exe/run/saplicense");
+		FakeShell shell = new FakeShell()
+				.on("find", "/opt/app/Sybase/UNIXSAP/SYS/exe/run/R3trans", "/opt/app/Sybase/UNIXSAP/SYS/exe/run/saplicense");
+		Map<String, Object> connectionInfo = new HashMap<String, Object>();
+		connectionInfo.put(HOST_OBJECT, "192.168.8.152");
+		connectionInfo.put(SHELL, shell);
+		System.out.println(new UNIXSAPFootprintStaticScript().run(params, connectionInfo));
+	}
+
+	public Map<String, String> run(Map<String, String> BDNA_Params, Map<String, Object> BDNA_Connection_Info) throws Exception {
+		Map<String, String> BDNA_Results = new HashMap<String, String>();
 		// get the telnet connection (set by the connection script)
 		// my $host = $BDNA_Connection_Info{"HostObject"};
-		String host = "192.168.8.152";
+		String host = (String) BDNA_Connection_Info.get(HOST_OBJECT);
+		BDNAShell shell = (BDNAShell) BDNA_Connection_Info.get(SHELL);
 		
 		// get the signature files (set by fingerprint)
 		// $sigFileString = $BDNA_Params{"root.types.footprint.SAPFootprint.UNIXSAPFootprint:signatureFiles"};
 		// @sigFiles = split(/$BDNA_Separator/, $sigFileString);
-		String sigFileString = "/SYS/exe/run/R3trans<BDNA,>/SYS/exe/run/saplicense" ;
-        String[] sigFiles = sigFileString.split("<BDNA,>");
+		String sigFileString = BDNA_Params.get("root.types.footprint.SAPFootprint.UNIXSAPFootprint:signatureFiles");
+        String[] sigFiles = sigFileString.split(BDNAResultWriter.SEPARATOR);
         
         // initialize the working variables perl (%sigPath = (); %homeDir = ();)
-        Map<String,Integer> sigPath = new HashMap<String, Integer>();
-        Map<String,Integer> homeDir = new HashMap<String, Integer>();
-        
-        // formulate a list of regular expressions from the signature file list
-        String sigPatterns = "";
-
-        for (int i=0;i < sigFiles.length; i++) {
-                if (!sigPatterns.equals("")) {
-                        sigPatterns = sigPatterns + "|" + sigFiles[i] + "$";
-                } else {
-                        sigPatterns = sigFiles[i] + "$";
-                }
-                
-        }
-        System.out.println("sigp:" + sigPatterns); //for test 
+        // (registered in the signature registry of the host, one pass answers all footprint modules)
+        SignatureRegistry registry = SignatureRegistry.forHost(host);
+        SignatureScan scan = registry.register(SignatureRegistry.SAP, sigFiles);
         
         // issue the find/grep command to locate directories with signature files  (perl: my ($cmd, $one);)
         String cmd = "",one = "";
         // &echo("Doing cachedFind for directory root for pattern: $sigPatterns");
-        System.out.println("Doing cachedFind for directory root for pattern:" + sigPatterns); 
+        BDNALog.debug("Doing cachedFind for directory root for signature files:{}", sigFileString);
         // String[]  output = cachedFind($host, 7*24*3600, $BDNA_Params{'root.$bdna.globalModuleConfig:filePatternList'}, "/", $sigPatterns, $BDNA_Params{'root.$bdna.globalModuleConfig.ModularCollectionOutOfSystemFind:ModularCollection::outOfSystemFindFilePath'});
-        String[]  output = {"/opt/app/Sybase/UNIXSAP/SYS/exe/run/R3trans","/opt/app/Sybase/UNIXSAP/SYS/exe/run/saplicense"};
-        
-        int oplength = output.length-1;
-        while (oplength>=0){
-          one = output[oplength];
-          one = one.replaceAll("\r|\n", "");
-         
-          // &echo("considering $one for a SAP home directory...");
-          System.out.println("considering $one for a SAP home directory...");
-          
-          // what home directory candidate contains what signature files  (perl: $sigPath{$one} = 1;)
-          sigPath.put(one, 1);
-          
-          // extract the home directory by removing the signature file suffix (perl: $_ = $one;)
-          for (int i = 0; i < sigFiles.length; i++) {
-                	  	  
-              //System.out.println("one:" + one);
-          	  //System.out.println("sigFiles[i]:" + sigFiles[i]);
-              Pattern homeRegex = Pattern.compile("(.*)" + sigFiles[i]);
-              Matcher matcher = homeRegex.matcher(one);
-              if (matcher.find()) {
-            	  homeDir.put(matcher.group(1), 1);                      	                          
-               }
-              System.out.println("sigFiles[" +i +"]:" + sigFiles[i]); //test
-              System.out.println("homeDir:" + homeDir);       //test
-              
-          }
-       oplength--;
-          
-        }
         
-        ArrayList<String> resultDir = new ArrayList<String>();
-        //String [] resultDir;
-                        
-        Iterator<?> iterDir = homeDir.entrySet().iterator();        
+        // look the signature files up in the local find index of the host (kept between scans and
+        // refreshed from the changed directories) and feed them to the scan (perl: $sigPath{$one} = 1; $_ = $one;)
+        String filePatternList = BDNA_Params.get("root.$bdna.globalModuleConfig:filePatternList");
+        String[] filePatterns = filePatternList == null || filePatternList.length() == 0 ? null : filePatternList.split(BDNAResultWriter.SEPARATOR);
+        registry.scanOnce(shell, host, "/", new File(System.getProperty("java.io.tmpdir")), filePatterns);
+        Map<String,Integer> sigPath = scan.getSigPath();
+        Map<String,Integer> homeDir = scan.getHomeDir();
+        BDNALog.debug("homeDir:{}", homeDir);
         
-        while(iterDir.hasNext()){
-        	String sigFileNotFound="0";
-        	Map.Entry entryDir = (Map.Entry) iterDir.next();
-            Object keyDir = entryDir.getKey();  
-            System.out.println("keyDir     :" + keyDir);         
-            // Object val = entry.getValue();
-          
-            for (int i = 0; i < sigFiles.length; i++) {                	              	  
-                 String sigFullPath = keyDir + sigFiles[i];
-                 if (sigPath.get(sigFullPath)==null)	{
-                     sigFileNotFound = "1";
-                     break;
-                 }
-            }
-              
-            if (!sigFileNotFound.equals("1")) {
-                resultDir.add((String) keyDir);
-                System.out.println("resultDir:" + keyDir);
-               
-            }
-        }
+        // keep the home directory candidates that contain every signature file
+        ArrayList<String> resultDir = scan.confirmHomes(homeDir.keySet());
+        BDNALog.debug("resultDir:{}", resultDir);
 
         // construct the result, which is a list of pairs of (<home dir>, <SID>)
         // &echo("SAP home dir list: @resultDir");
+        BDNALog.debug("SAP home dir list: {}", resultDir);
         
-        
-        		
+        return BDNA_Results;
 	}
 }
@@ -1,60 +1,68 @@
 package Sybase;
-import java.awt.List;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.regex.*;
 import java.util.*;
 
+import Common.BDNALog;
+import Common.BDNAScript;
+import Common.BDNAShell;
+import Common.FakeShell;
+import Common.ProcessPatternMatcher;
 
-public class com_bdna_modules_app_Sybase_UNIX_Sybase_IQDynamic_script {
-	public static void main(String[] args) {
+
+public class com_bdna_modules_app_Sybase_UNIX_Sybase_IQDynamic_script implements BDNAScript {
+
+	// processPatternList java<BDNA,>iqsrv and the regexes that capture the install directory
+	// ($_exProcess, $_exProcess2) are registered in ProcessPatternMatcher.unixModules()
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("root.types.resource.software.application.Sybase.UNIX_Sybase_IQ:installDirectory", "/opt/app/Sybase/UNIX_Sybase_IQ");
+		Map<String, Object> connectionInfo = new HashMap<String, Object>();
+		connectionInfo.put(HOST_OBJECT, "192.168.8.152");
+		connectionInfo.put(SHELL, new FakeShell().on("process_table", "  PID  PPID USER     COMMAND", "  812     1 sybase   /opt/app/Sybase/UNIX_Sybase_IQ/bin/iqsrv -n iqdemo", "  907     1 sybase   java -Diq.agent=/opt/app/Sybase/UNIX_Sybase_IQ/java/IQAgent2.jar com.sybase.iq.agent.Main"));
+		System.out.println(new com_bdna_modules_app_Sybase_UNIX_Sybase_IQDynamic_script().run(params, connectionInfo));
+	}
+
+	public Map<String, String> run(Map<String, String> BDNA_Params, Map<String, Object> BDNA_Connection_Info) throws Exception {
+		Map<String, String> BDNA_Results = new HashMap<String, String>();
 		//my $host = $BDNA_Connection_Info{"HostObject"};
-        String host = "192.168.8.152";
+        String host = (String) BDNA_Connection_Info.get(HOST_OBJECT);
         //my $_UNIX_Sybase_IQ_installDirectory = $BDNA_Params{"root.types.resource.software.application.Sybase.UNIX_Sybase_IQ:installDirectory"};
-        String _UNIX_Sybase_IQ_installDirectory = "/opt/app/Sybase/UNIX_Sybase_IQ";
+        String _UNIX_Sybase_IQ_installDirectory = BDNA_Params.get("root.types.resource.software.application.Sybase.UNIX_Sybase_IQ:installDirectory");
         String _UNIX_Sybase_IQ_isRunning = "";
+        //String[] output = &shellcmd($host, $cmd, "process_table");
+        BDNAShell shell = (BDNAShell) BDNA_Connection_Info.get(SHELL);
         //my @_runningProcess = &_j4_findProcess($host, [("iqsrv")]);
         //my @_runningProcess2 = &_j4_findProcess($host, [("java")]);
-        String[] _runningProcess ={"/opt/app/Sybase/UNIX_Sybase_IQ/bin/iqsrv"};
-        String[] _runningProcess2 = {"iq.agent=/opt/app/Sybase/UNIX_Sybase_IQ/java/IQAgent2.jar"};
+        // one ps and one pass of the automaton for both patterns, shared with the process checks
+        // of the other modules on this host
+        java.util.List<ProcessPatternMatcher.Match> _runningProcess = ProcessPatternMatcher.forHost(shell, host, ProcessPatternMatcher.SYBASE_IQ);
         String _isRunning = "False";
         String _isRunningDir = "";
-       
-        for (int i=0; i<_runningProcess.length; i++) {
-        	Pattern _exProcess = Pattern.compile("(.*)bin/iqsrv|(.*)bin64/iqsrv");
-        	System.out.println(_runningProcess[i]);
-        	Matcher matcher0 = _exProcess.matcher(_runningProcess[i]);
-        	if (matcher0.find()) {
-        		_isRunningDir = matcher0.group(1);
-                System.out.println("RunningDir:" + _isRunningDir);
-                if (_isRunningDir.contains(_UNIX_Sybase_IQ_installDirectory)) {
-                	_isRunning = "True";
-                	System.out.println("isRunning:" + _isRunning);
-                }
-                break;
-           }
-        	
-        }
-        
-        for (int i=0; i<_runningProcess2.length; i++) {
-        	Pattern _exProcess2 = Pattern.compile("iq.agent=(.*)/java/IQAgent\\d*.jar");
-        	System.out.println(_runningProcess2[i]);
-        	Matcher matcher0 = _exProcess2.matcher(_runningProcess2[i]);
-        	if (matcher0.find()) {
-        		_isRunningDir = matcher0.group(1);
-                System.out.println("RunningDir:" + _isRunningDir);
-                if (_isRunningDir.contains(_UNIX_Sybase_IQ_installDirectory)) {
-                	_isRunning = "True";
-                	System.out.println("isRunning:" + _isRunning);
-                }
-                break;
-           }
-        	
+
+        // like the two perl loops, only the first iqsrv and the first IQ agent process count:
+        // both loops ended with last after their first match
+        Set<String> _checkedPatterns = new HashSet<String>();
+        for (int i=0; i<_runningProcess.size(); i++) {
+        	if (!_checkedPatterns.add(_runningProcess.get(i).getPattern())) {
+        		continue;
+        	}
+        	BDNALog.trace("{}", _runningProcess.get(i).getLine());
+        	_isRunningDir = _runningProcess.get(i).getInstallDir();
+        	BDNALog.debug("RunningDir:{}", _isRunningDir);
+        	if (_isRunningDir.contains(_UNIX_Sybase_IQ_installDirectory)) {
+        		_isRunning = "True";
+        		BDNALog.debug("isRunning:{}", _isRunning);
+        	}
         }
-        	
+
         _UNIX_Sybase_IQ_isRunning = _isRunning;
-        System.out.println("UNIX Sybase IQ isRunning:" + _UNIX_Sybase_IQ_isRunning);
+        BDNALog.debug("UNIX Sybase IQ isRunning:{}", _UNIX_Sybase_IQ_isRunning);
         //$BDNA_Results{"isRunning"} = $_UNIX_Sybase_IQ_isRunning;
+        BDNA_Results.put("isRunning", _UNIX_Sybase_IQ_isRunning);
+        return BDNA_Results;
 	}
         
 }